@@ -0,0 +1,72 @@
+package otherspace;
+
+import com.google.gson.JsonObject;
+import org.joml.Vector2i;
+import otherspace.core.engine.utils.IOUtils;
+import otherspace.core.engine.world.generation.GenerationContext;
+import otherspace.core.registry.*;
+import otherspace.core.session.SettingsManager;
+import otherspace.core.session.scenes.world.ChunkStorage;
+import otherspace.core.session.scenes.world.SaveJournal;
+import otherspace.core.session.scenes.world.WorldPregenerator;
+import otherspace.game.BaseMod;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Headless entry point for pre-generating an area of an existing world, without opening a window.
+ * Usage: {@code PregenLauncher <save path> <radius> [centre x] [centre y]} or
+ * {@code PregenLauncher <save path> <x1> <y1> <x2> <y2>}, in chunk coordinates.
+ */
+public class PregenLauncher {
+    public static void main(String[] args) {
+        if (args.length != 2 && args.length != 4 && args.length != 5) {
+            System.err.println("Usage: PregenLauncher <save path> <radius> [centre x] [centre y]");
+            System.err.println("       PregenLauncher <save path> <x1> <y1> <x2> <y2>");
+            System.exit(1);
+        }
+
+        File savePath = new File(args[0]);
+        File worldInfoFile = new File(savePath, "worldInfo.json");
+        if (!worldInfoFile.exists()) {
+            System.err.println("No world found at " + savePath + ".");
+            System.exit(1);
+        }
+
+        List<Vector2i> area;
+        try {
+            if (args.length == 5) {
+                area = WorldPregenerator.getRectangle(Integer.parseInt(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]), Integer.parseInt(args[4]));
+            }
+            else {
+                int radius = Math.max(Integer.parseInt(args[1]), 0);
+                int cx = args.length == 4 ? Integer.parseInt(args[2]) : 0;
+                int cy = args.length == 4 ? Integer.parseInt(args[3]) : 0;
+                area = WorldPregenerator.getCircle(cx, cy, radius);
+            }
+        }
+        catch (NumberFormatException e) {
+            System.err.println("Invalid area.");
+            System.exit(1);
+            return;
+        }
+
+        // Register game content. Nothing here touches OpenGL or OpenAL, since sprites and sounds are only loaded later on.
+        new SettingsManager();
+        BaseMod.init();
+        ItemRegistry.registerItems();
+        TileRegistry.registerTiles();
+        RecipeRegistry.registerRecipes();
+        EntityRegistry.registerEntities();
+        WorldGeneratorRegistry.registerGenerators();
+
+        JsonObject worldInfo = IOUtils.loadJson(worldInfoFile.getPath());
+        GenerationContext context = new GenerationContext(worldInfo.get("seed").getAsInt(), worldInfo.get("mapType").getAsInt(), savePath);
+
+        ChunkStorage storage = new ChunkStorage(savePath);
+        SaveJournal.recover(savePath, storage);
+        new WorldPregenerator(storage, WorldGeneratorRegistry.create(context), area, false, true).run();
+        storage.close();
+    }
+}
@@ -1,182 +1,208 @@
 package otherspace.core.engine.utils;
 
 import org.joml.Vector2d;
-import org.joml.Vector2i;
 import org.joml.primitives.Rectangled;
-import org.joml.primitives.Rectanglei;
 import otherspace.core.engine.world.entities.Entity;
 import otherspace.core.engine.world.entities.MobileEntity;
 import otherspace.core.session.scenes.world.Chunk;
+import otherspace.core.session.scenes.world.ChunkCursor;
+import otherspace.core.session.scenes.world.World;
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collection;
 
 /**
  * Utility class for handling collisions.
  */
 public final class CollisionUtils {
+    // Reused by entity checks that only need to look at the results once, so they do not allocate a new list each time.
+    private static final ArrayList<Entity> entityBuffer = new ArrayList<>();
+    private static final Rectangled sweepArea = new Rectangled();
+    private static final ChunkCursor tileCursor = new ChunkCursor();
+
+    // Tolerance for treating two edges as touching rather than overlapping.
+    private static final double EPSILON = 1e-7;
+
     private CollisionUtils() {}
 
     /**
-     * Get the entities within a radius of chunks around a point.
+     * Check for collisions with entities at a specific point.
      *
-     * @param origin Center of area to check.
-     * @param range How far to check, in chunks (Set to 0 to only check the chunk under the point).
-     * @return Set of all entities within the given chunks.
+     * @param location Point to check.
+     * @return First entity detected at point, if any exists.
      */
-    public static HashSet<Entity> getNearbyEntities(Vector2d origin, int range) {
-        HashSet<Chunk> chunkSet = getNearbyChunks(origin, range);
-        HashSet<Entity> entities = new HashSet<>();
-        for (Chunk c : chunkSet) {
-            entities.addAll(c.localEntities);
-        }
-        return entities;
+    public static <E extends Entity> E collisionPoint(Class<E> type, Vector2d location) {
+        return World.getEntityGrid().getEntityAt(type, location.x, location.y);
     }
 
     /**
-     * Get the entities near a given point (within a radius of 2 chunks).
+     * Add every entity of a given type that collides with this rectangle to a collection.
      *
-     * @param origin Center of area to check.
-     * @return Set of nearby entities.
+     * @param type Type of entity to look for.
+     * @param area Area to check for collisions.
+     * @param out Collection to add the entities found to.
      */
-    public static HashSet<Entity> getNearbyEntities(Vector2d origin) {
-        return getNearbyEntities(origin, 5);
+    public static <E extends Entity> void collisionRectList(Class<E> type, Rectangled area, Collection<? super E> out) {
+        World.getEntityGrid().getIntersecting(type, area, out);
     }
 
     /**
-     * Get the nine chunks surrounding a point in the world.
+     * Check if an area collides with any loaded entities.
      *
-     * @param origin Center of area to check.
-     * @return 9 Chunks immediately surrounding area (an index is null if no chunk exists there).
+     * @param area Area to check.
+     * @param includeMobile Whether mobile entities should count.
+     * @param ignore Entity to leave out of the check, or null to check every entity.
+     * @return Whether any entities intersect this area.
      */
-    public static HashSet<Chunk> getNearbyChunks(Vector2d origin, int range) {
-        int cX = (int) Math.floor(origin.x / 16);
-        int cY = (int) Math.floor(origin.y / 16);
-        int dia = 1 + (range * 2);
-        HashSet<Chunk> chunks = new HashSet<>();
-        for (int x = 0; x < dia; x++) {
-            int xOffset = cX - range + x;
-            for (int y = 0; y < dia; y++) {
-                int yOffset = cY - range + y;
-                Chunk chunk = Chunk.getChunk(new Vector2i(xOffset, yOffset));
-                if (chunk != null) {
-                    chunks.add(chunk);
-                }
-            }
+    public static boolean checkEntityCollision(Rectangled area, boolean includeMobile, Entity ignore) {
+        World.getEntityGrid().getIntersecting(Entity.class, area, entityBuffer);
+        boolean collided = false;
+        for (int i = 0; i < entityBuffer.size() && !collided; i++) {
+            Entity e = entityBuffer.get(i);
+            collided = e != ignore && (includeMobile || !(e instanceof MobileEntity));
         }
-
-        return chunks;
+        entityBuffer.clear();
+        return collided;
     }
 
     /**
-     * Check for collisions with entities at a specific point.
+     * Move an entity as far as it can go towards a destination, stopping it against solid tiles, unloaded chunks and
+     * non-mobile entities. Each axis is swept separately, horizontal first, so an entity blocked on one axis still
+     * slides along the other, and anything in the way is found however far the entity moves in one update.
      *
-     * @param location Point to check.
-     * @return First entity detected at point, if any exists.
+     * @param entity Entity to move.
+     * @param dx Distance to move horizontally.
+     * @param dy Distance to move vertically.
      */
-    @SuppressWarnings("unchecked")
-    public static <E extends Entity> E collisionPoint(Class<E> type, Vector2d location) {
-        HashSet<Entity> candidates = getNearbyEntities(location);
-
-        for (Entity e : candidates) {
-            if (type.isInstance(e) && e.getBounds().containsPoint(location)) {
-                return (E) e;
-            }
+    public static void moveAndCollide(Entity entity, double dx, double dy) {
+        Rectangled bounds = entity.getLocalBounds();
+        if (bounds == null) {
+            entity.position.add(dx, dy);
+            return;
         }
 
-        return null;
+        double minX = entity.position.x + bounds.minX;
+        double minY = entity.position.y + bounds.minY;
+        double maxX = entity.position.x + bounds.maxX;
+        double maxY = entity.position.y + bounds.maxY;
+
+        // Gather every entity the movement could touch with a single query covering both axes.
+        sweepArea.minX = Math.min(minX, minX + dx);
+        sweepArea.minY = Math.min(minY, minY + dy);
+        sweepArea.maxX = Math.max(maxX, maxX + dx);
+        sweepArea.maxY = Math.max(maxY, maxY + dy);
+        World.getEntityGrid().getIntersecting(Entity.class, sweepArea, entityBuffer);
+
+        if (dx != 0) {
+            dx = sweep(true, minX, maxX, minY, maxY, dx, entity);
+            entity.position.x += dx;
+            minX += dx;
+            maxX += dx;
+        }
+        if (dy != 0) {
+            dy = sweep(false, minY, maxY, minX, maxX, dy, entity);
+            entity.position.y += dy;
+        }
+        entityBuffer.clear();
     }
 
     /**
-     * Get a list of every entity of a given type that collides with this rectangle.
+     * Find how far a box can move along one axis before it hits something. Obstacles the box already overlaps are
+     * ignored, so that an entity stuck inside something is still able to move out of it.
      *
-     * @param entityList Superset to check.
-     * @param area Area to check for collisions.
-     * @return Set of entities of said type within the collision area.
+     * @param horizontal Whether the box is moving along the x axis.
+     * @param min Lower edge of box along the axis of movement.
+     * @param max Upper edge of box along the axis of movement.
+     * @param crossMin Lower edge of box along the other axis.
+     * @param crossMax Upper edge of box along the other axis.
+     * @param delta Distance to move.
+     * @param ignore Entity being moved, which cannot block itself.
+     * @return Distance the box can move, which has the same sign as delta and is no longer than it.
      */
-    @SuppressWarnings("unchecked")
-    public static <E> HashSet<E> collisionRectList(HashSet<Entity> entityList, Class<E> type, Rectangled area) {
-        HashSet<E> out = new HashSet<>();
-        for (Entity e : entityList) {
-            if (e.getBounds().intersectsRectangle(area) && type.isInstance(e)) {
-                out.add((E) e);
+    private static double sweep(boolean horizontal, double min, double max, double crossMin, double crossMax, double delta, Entity ignore) {
+        // Edges are nudged inwards slightly, so a box resting exactly against a tile does not count as overlapping it.
+        int crossStart = (int) Math.floor(crossMin + EPSILON);
+        int crossEnd = (int) Math.ceil(crossMax - EPSILON);
+
+        // Walk the tiles the leading edge passes over, nearest first, until one of them is solid.
+        if (delta > 0) {
+            for (int i = (int) Math.ceil(max - EPSILON); i < max + delta; i++) {
+                if (isLineSolid(horizontal, i, crossStart, crossEnd)) {
+                    delta = Math.max(0, i - max);
+                    break;
+                }
+            }
+        }
+        else {
+            for (int i = (int) Math.floor(min + EPSILON) - 1; i + 1 > min + delta; i--) {
+                if (isLineSolid(horizontal, i, crossStart, crossEnd)) {
+                    delta = Math.min(0, i + 1 - min);
+                    break;
+                }
             }
         }
 
-        return out;
-    }
+        for (int i = 0; i < entityBuffer.size(); i++) {
+            Entity e = entityBuffer.get(i);
+            Rectangled box = e.getLocalBounds();
+            if (e == ignore || e instanceof MobileEntity || box == null) {
+                continue;
+            }
 
-    /**
-     * Check if an area collides with any tiles in a set of chunks.
-     *
-     * @param chunks Set of chunks.
-     * @param area Area to check.
-     * @return Whether any solid tiles intersect this area.
-     */
-    public static boolean checkTileCollision(HashSet<Chunk> chunks, Rectangled area) {
-        for (Chunk c : chunks) {
-            Rectangled toCheck = new Rectangled();
-            area.intersection(new Rectangled(c.chunkCoords.x * 16d, c.chunkCoords.y * 16d, c.chunkCoords.x * 16d + 16, c.chunkCoords.y * 16d + 16), toCheck);
-            if (toCheck.isValid()) {
-                toCheck.translate(-c.chunkCoords.x * 16, -c.chunkCoords.y * 16);
-                Rectanglei tiles = new Rectanglei((int) toCheck.minX, (int) toCheck.minY, (int) Math.ceil(toCheck.maxX), (int) Math.ceil(toCheck. maxY));
-                for (int i = tiles.minX; i < tiles.maxX; i++) {
-                    for (int j = tiles.minY; j < tiles.maxY; j++) {
-                        if (c.getTileData(Chunk.STM).getAbsoluteTile(i, j) > -1) {
-                            return true;
-                        }
-                    }
-                }
+            double otherMin = horizontal ? e.position.x + box.minX : e.position.y + box.minY;
+            double otherMax = horizontal ? e.position.x + box.maxX : e.position.y + box.maxY;
+            double otherCrossMin = horizontal ? e.position.y + box.minY : e.position.x + box.minX;
+            double otherCrossMax = horizontal ? e.position.y + box.maxY : e.position.x + box.maxX;
+            if (otherCrossMax <= crossMin + EPSILON || otherCrossMin >= crossMax - EPSILON) {
+                continue;
+            }
+
+            if (delta > 0 && otherMin >= max - EPSILON) {
+                delta = Math.min(delta, Math.max(0, otherMin - max));
+            }
+            else if (delta < 0 && otherMax <= min + EPSILON) {
+                delta = Math.max(delta, Math.min(0, otherMax - min));
             }
         }
-        return false;
+        return delta;
     }
 
     /**
-     * Check if an area collides with any entities in a set of entities.
+     * Check if any tile in a line of tiles blocks movement, counting tiles in unloaded chunks as solid.
      *
-     * @param entities Set of entities.
-     * @param area Area to check.
-     * @return Whether any entities intersect this area.
+     * @param horizontal Whether the line is a column (true) or a row (false).
+     * @param line X coordinate of column, or Y coordinate of row.
+     * @param start First tile along the line to check.
+     * @param end Tile after the last tile to check.
+     * @return Whether any tile in the line is solid.
      */
-    public static boolean checkEntityCollision(HashSet<Entity> entities, Rectangled area, boolean includeMobile) {
-        for (Entity e : entities) {
-            if (e.getBounds().intersectsRectangle(area) && (includeMobile || !(e instanceof MobileEntity))) {
+    private static boolean isLineSolid(boolean horizontal, int line, int start, int end) {
+        // Check the line one chunk at a time, testing each chunk's solid tiles with its solidity mask.
+        while (start < end) {
+            int chunkEnd = Math.min(end, (start & ~15) + 16);
+            Chunk chunk = horizontal ? tileCursor.getChunk(line >> 4, start >> 4) : tileCursor.getChunk(start >> 4, line >> 4);
+            if (chunk == null) {
+                return true;
+            }
+
+            int from = start & 15;
+            int to = (chunkEnd - 1 & 15) + 1;
+            if (horizontal ? (chunk.getSolidColumn(line & 15) & getRowMask(from, to)) != 0 : chunk.isRowSolid(line & 15, from, to)) {
                 return true;
             }
+            start = chunkEnd;
         }
         return false;
     }
 
     /**
-     * Determine where an entity would stop moving, respecting collisions.
+     * Get a mask selecting a range of tiles in a chunk column.
      *
-     * @param entity Entity to move.
-     * @param destination Destination of movement.
-     * @param speed Speed of movement.
+     * @param from First tile in range.
+     * @param to Tile after the last tile in range.
+     * @return Bitmask with bits from (inclusive) to to (exclusive) set.
      */
-    public static void moveAndCollide(Entity entity, Vector2d destination, double speed) {
-        // This is absolutely terrible and will not hold up if anything moves faster than a few meters per second,
-        // but it will do until a more robust collision detection system is implemented.
-        HashSet<Chunk> nearby = getNearbyChunks(entity.position, 1);
-        HashSet<Entity> nearbyEntities = getNearbyEntities(entity.position);
-        nearbyEntities.remove(entity);
-        int steps = (int) Math.ceil(speed);
-
-        double vx = (entity.position.x - destination.x) / steps;
-        double vy = (entity.position.y - destination.y) / steps;
-
-        for (int i = 0; i < steps; i++) {
-            if (Chunk.getChunk(new Vector2i((int) ((entity.position.x - vx) / 16), (int) (entity.position.y / 16))) != null) {
-                if (!checkTileCollision(nearby, new Rectangled(entity.getBounds()).translate(-vx, 0)) && !checkEntityCollision(nearbyEntities, new Rectangled(entity.getBounds()).translate(-vx, 0), false)) {
-                    entity.position.x -= vx;
-                }
-            }
-
-            if (Chunk.getChunk(new Vector2i((int) (entity.position.x / 16), (int) ((entity.position.y - vy) / 16))) != null) {
-                if (!checkTileCollision(nearby, new Rectangled(entity.getBounds()).translate(0, -vy)) && !checkEntityCollision(nearbyEntities, new Rectangled(entity.getBounds()).translate(0, -vy), false)) {
-                    entity.position.y -= vy;
-                }
-            }
-        }
+    private static int getRowMask(int from, int to) {
+        return (1 << to) - (1 << from);
     }
 }
@@ -9,14 +9,19 @@ import org.lwjgl.BufferUtils;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.regex.Pattern;
 
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
 import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.*;
 import static org.lwjgl.system.MemoryUtil.memSlice;
 import static org.lwjgl.util.zstd.Zstd.*;
 
@@ -24,6 +29,9 @@ import static org.lwjgl.util.zstd.Zstd.*;
  * Utility class to simplify IO operations.
  */
 public final class IOUtils {
+    // Reusable per-thread buffer that frames are decompressed into, grown as needed.
+    private static final ThreadLocal<ByteBuffer> DECOMPRESSION_BUFFER = ThreadLocal.withInitial(() -> BufferUtils.createByteBuffer(16384));
+
     private IOUtils() {}
 
     /**
@@ -168,12 +176,41 @@ public final class IOUtils {
 
         // Save JSON to file
         try {
-            Files.writeString(Paths.get(filePath), json);
+            writeAtomic(Paths.get(filePath), json.getBytes(StandardCharsets.UTF_8), false);
         } catch (IOException e) {
             throw new RuntimeException("Failed to save JSON file to " + filePath);
         }
     }
 
+    /**
+     * Replace the contents of a file by writing to a temporary file next to it and renaming it over the original,
+     * so that the file is never left half written.
+     *
+     * @param target File to write.
+     * @param data Contents of file.
+     * @param sync Whether to force the new contents onto the disk before replacing the original.
+     * @throws IOException If the file could not be written.
+     */
+    public static void writeAtomic(Path target, byte[] data, boolean sync) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            if (sync) {
+                out.force(true);
+            }
+        }
+
+        try {
+            Files.move(temp, target, ATOMIC_MOVE, REPLACE_EXISTING);
+        }
+        catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, REPLACE_EXISTING);
+        }
+    }
+
     /**
      * Construct an object from a JSON element.
      *
@@ -220,25 +257,6 @@ public final class IOUtils {
         return out;
     }
 
-    /**
-     * Load one or more blobs of compressed data from a file.
-     *
-     * @param compressedData File containing compressed data.
-     * @return Array of output data buffers.
-     */
-    public static ByteBuffer[] loadCompressedBuffers(File compressedData) {
-        try (SeekableByteChannel in = Files.newByteChannel(compressedData.toPath())) {
-            ByteBuffer data = BufferUtils.createByteBuffer((int) in.size() + 1);
-            while (in.read(data) != -1) {
-                ;
-            }
-            return loadCompressedBuffers(data);
-        }
-        catch (IOException e) {
-            throw new RuntimeException(e);
-        }
-    }
-
     /**
      * Load one or more blobs of compressed data from a buffer.
      *
@@ -260,4 +278,57 @@ public final class IOUtils {
 
         return buffers.toArray(new ByteBuffer[0]);
     }
+
+    /**
+     * Decompress one or more blobs of compressed data into a buffer that is reused by every call on the current thread.
+     * Unlike {@link #loadCompressedBuffers(ByteBuffer)}, this does not allocate any direct memory once the buffer is large enough,
+     * but the returned buffers are only valid until the next call on this thread.
+     *
+     * @param compressed Compressed data, which must be a direct buffer (e.g. a slice of a mapped file).
+     * @return Array of output data buffers, or null if the data is truncated or corrupt.
+     */
+    public static ByteBuffer[] decompressBuffers(ByteBuffer compressed) {
+        // Find every frame and its decompressed size first, so that they can all share one buffer.
+        ArrayList<ByteBuffer> frames = new ArrayList<>();
+        ArrayList<Integer> sizes = new ArrayList<>();
+        long totalSize = 0;
+        int position = compressed.position();
+        while (compressed.limit() - position > Integer.BYTES) {
+            int frameSize = compressed.getInt(position);
+            if (frameSize < 0 || frameSize > compressed.limit() - position - Integer.BYTES) {
+                return null;
+            }
+            ByteBuffer frame = compressed.slice(position + Integer.BYTES, frameSize);
+            long contentSize = ZSTD_getFrameContentSize(frame);
+            if (contentSize < 0 || contentSize > Integer.MAX_VALUE) {
+                return null;
+            }
+            frames.add(frame);
+            sizes.add((int) contentSize);
+            totalSize += contentSize;
+            position += Integer.BYTES + frameSize;
+        }
+        if (totalSize > Integer.MAX_VALUE / 2) {
+            return null;
+        }
+
+        ByteBuffer pool = DECOMPRESSION_BUFFER.get();
+        if (pool.capacity() < totalSize) {
+            pool = BufferUtils.createByteBuffer(Integer.highestOneBit((int) totalSize) << 1);
+            DECOMPRESSION_BUFFER.set(pool);
+        }
+
+        ByteBuffer[] buffers = new ByteBuffer[frames.size()];
+        int offset = 0;
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = pool.slice(offset, sizes.get(i));
+            long decompressed = ZSTD_decompress(buffers[i], frames.get(i));
+            if (ZSTD_isError(decompressed) || decompressed != sizes.get(i)) {
+                return null;
+            }
+            offset += sizes.get(i);
+        }
+
+        return buffers;
+    }
 }
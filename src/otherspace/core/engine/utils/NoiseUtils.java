@@ -1,7 +1,5 @@
 package otherspace.core.engine.utils;
 
-import otherspace.core.session.scenes.world.World;
-
 import static org.joml.Math.lerp;
 
 /**
@@ -96,13 +94,14 @@ public final class NoiseUtils {
     }
 
     /**
-     * Generate a perlin noise value from 0 to 1 using a given pair of coordinates.
+     * Generate a perlin noise value from 0 to 1 using a given pair of coordinates and seed.
      *
+     * @param seed Seed to use.
      * @param x X value.
      * @param y Y value.
      * @return Generated noise.
      */
-    public static float perlinNoise(float x, float y) {
+    public static float perlinNoise(int seed, float x, float y) {
         int x0 = x >= 0 ? (int) x : (int) x - 1;
         int y0 = y >= 0 ? (int) y : (int) y - 1;
 
@@ -119,9 +118,74 @@ public final class NoiseUtils {
         int x1 = x0 + PrimeX;
         int y1 = y0 + PrimeY;
 
-        float xf0 = lerp(gradCoord(World.getSeed(), x0, y0, xd0, yd0), gradCoord(World.getSeed(), x1, y0, xd1, yd0), xs);
-        float xf1 = lerp(gradCoord(World.getSeed(), x0, y1, xd0, yd1), gradCoord(World.getSeed(), x1, y1, xd1, yd1), xs);
+        float xf0 = lerp(gradCoord(seed, x0, y0, xd0, yd0), gradCoord(seed, x1, y0, xd1, yd0), xs);
+        float xf1 = lerp(gradCoord(seed, x0, y1, xd0, yd1), gradCoord(seed, x1, y1, xd1, yd1), xs);
 
         return ((lerp(xf0, xf1, ys) * 1.4247691104677813f) + 1) / 2;
     }
+
+    /**
+     * Fill a grid with perlin noise values from 0 to 1, sampled at every combination of the given coordinates.
+     * Each value is identical to calling {@link #perlinNoise(int, float, float)} with the same coordinates scaled by the
+     * frequency, but everything that only depends on one axis is worked out once per row or column rather than per sample.
+     *
+     * @param out Array to fill, indexed by x * ys.length + y (e.g. the tile order of a chunk).
+     * @param seed Seed to use.
+     * @param xs X values of each column.
+     * @param ys Y values of each row.
+     * @param frequency Value every coordinate is multiplied by before sampling.
+     */
+    public static void perlinNoise(float[] out, int seed, float[] xs, float[] ys, float frequency) {
+        perlinNoise(out, 0, seed, xs, ys, frequency);
+    }
+
+    /**
+     * Fill part of an array with a grid of perlin noise values from 0 to 1, e.g. one chunk out of a batch.
+     *
+     * @param out Array to fill, indexed by offset + x * ys.length + y.
+     * @param offset Index of the first sample in the array.
+     * @param seed Seed to use.
+     * @param xs X values of each column.
+     * @param ys Y values of each row.
+     * @param frequency Value every coordinate is multiplied by before sampling.
+     */
+    public static void perlinNoise(float[] out, int offset, int seed, float[] xs, float[] ys, float frequency) {
+        int height = ys.length;
+        if (offset < 0 || out.length - offset < xs.length * height) {
+            throw new IllegalArgumentException("Noise grid of " + (out.length - offset) + " values is too small for " + xs.length + "x" + height + " samples.");
+        }
+
+        // Per-row values, shared by every column.
+        float[] yd0 = new float[height];
+        float[] yd1 = new float[height];
+        float[] yFade = new float[height];
+        int[] y0Primed = new int[height];
+        int[] y1Primed = new int[height];
+        for (int j = 0; j < height; j++) {
+            float y = ys[j] * frequency;
+            int y0 = y >= 0 ? (int) y : (int) y - 1;
+            yd0[j] = y - y0;
+            yd1[j] = yd0[j] - 1;
+            yFade[j] = fade(yd0[j]);
+            y0Primed[j] = y0 * PrimeY;
+            y1Primed[j] = y0Primed[j] + PrimeY;
+        }
+
+        for (int i = 0; i < xs.length; i++) {
+            float x = xs[i] * frequency;
+            int x0 = x >= 0 ? (int) x : (int) x - 1;
+            float xd0 = x - x0;
+            float xd1 = xd0 - 1;
+            float xFade = fade(xd0);
+            x0 *= PrimeX;
+            int x1 = x0 + PrimeX;
+
+            int row = offset + i * height;
+            for (int j = 0; j < height; j++) {
+                float xf0 = lerp(gradCoord(seed, x0, y0Primed[j], xd0, yd0[j]), gradCoord(seed, x1, y0Primed[j], xd1, yd0[j]), xFade);
+                float xf1 = lerp(gradCoord(seed, x0, y1Primed[j], xd0, yd1[j]), gradCoord(seed, x1, y1Primed[j], xd1, yd1[j]), xFade);
+                out[row + j] = ((lerp(xf0, xf1, yFade[j]) * 1.4247691104677813f) + 1) / 2;
+            }
+        }
+    }
 }
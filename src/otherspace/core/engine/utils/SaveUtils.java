@@ -21,11 +21,21 @@ public final class SaveUtils {
     private SaveUtils() {}
 
     /**
-     * Save the current game.
+     * Save the current game, waiting until everything has been written.
      *
      * @param savePath Path to save file.
      */
     public static void saveGame(File savePath) {
+        saveGame(savePath, false);
+    }
+
+    /**
+     * Save the current game. The game state is captured immediately, and the files are written by the world saver.
+     *
+     * @param savePath Path to save file.
+     * @param background Whether to return without waiting for the files to be written (e.g. for autosaves).
+     */
+    public static void saveGame(File savePath, boolean background) {
         // Start saving process.
         System.out.println("Saving world...");
         long start = System.currentTimeMillis();
@@ -44,14 +54,21 @@ public final class SaveUtils {
         manifest.add("time", new JsonPrimitive(time));
         manifest.add("version", new JsonPrimitive(Session.GAME_VERSION));
         manifest.add("playTime", new JsonPrimitive(menuPlaytime));
-        IOUtils.saveJson(manifest, savePath.getPath() + "/manifest.json");
+        World.getWorldSaver().writeJson(manifest, "manifest.json");
 
         // Save world
-        World.saveWorld();
-
-        // End saving process.
-        long saveTime = System.currentTimeMillis() - start;
-        System.out.println("World save finished in " + saveTime + "ms.");
+        int chunksSaved = World.saveWorld();
+        long snapshotTime = System.currentTimeMillis() - start;
+
+        // End saving process once the world saver has caught up.
+        World.getWorldSaver().commit();
+        World.getWorldSaver().submit(() -> {
+            long saveTime = System.currentTimeMillis() - start;
+            System.out.println("World save finished in " + saveTime + "ms (" + chunksSaved + " chunks written, " + snapshotTime + "ms on game thread).");
+        });
+        if (!background) {
+            World.getWorldSaver().flush();
+        }
     }
 
     /**
@@ -32,6 +32,10 @@ public abstract class Entity {
     public Vector2d position;
     protected Chunk myChunk;
 
+    // Cell this entity is filed under in the world's entity grid.
+    long gridCell;
+    boolean inGrid;
+
     protected int depth;
     protected int spriteFrame;
     protected int spriteSpeed;
@@ -41,6 +45,7 @@ public abstract class Entity {
         World.getEntityList().add(this);
 
         this.position = position;
+        World.getEntityGrid().add(this);
         depth = 0;
         spriteFrame = 0;
         spriteSpeed = 0;
@@ -52,14 +57,14 @@ public abstract class Entity {
         // Add self to local chunk.
         int cX = (int) (position.x / 16);
         int cY = (int) (position.y / 16);
-        myChunk = Chunk.getChunk(new Vector2i(cX, cY));
+        myChunk = Chunk.getChunk(cX, cY);
 
         if (myChunk == null) {
             myChunk = Chunk.loadChunk(new Vector2i(cX, cY));
         }
 
         if (myChunk != null) {
-            myChunk.localEntities.add(this);
+            myChunk.addEntity(this);
         }
         else {
             // If the chunk is still null, that means this entity should not exist (may modify this behavior later).
@@ -93,10 +98,18 @@ public abstract class Entity {
      * Destroy this entity.
      */
     public void destroy() {
-        World.getEntityList().remove(this);
         if (myChunk != null) {
-            myChunk.localEntities.remove(this);
+            myChunk.removeEntity(this);
         }
+        unload();
+    }
+
+    /**
+     * Remove this entity from the world without removing it from its chunk, used when the chunk holding it is unloaded.
+     */
+    public void unload() {
+        World.getEntityList().remove(this);
+        World.getEntityGrid().remove(this);
 
         // If we have a GUI and the player is interacting with it, clear it.
         GUI<?> myGUI = getComponent(GUI.class);
@@ -106,6 +119,15 @@ public abstract class Entity {
         }
     }
 
+    /**
+     * Flag the chunk holding this entity as changed, so that this entity's new state is included in the next save.
+     */
+    public void markDirty() {
+        if (myChunk != null) {
+            myChunk.markDirty();
+        }
+    }
+
     /**
      * Get the sprite attached to this entity, if there is one.
      *
@@ -121,7 +143,7 @@ public abstract class Entity {
      * @return Entity bounding box, or null if it has none.
      */
     public Rectangled getBounds() {
-        Rectangled bounds = getSprite().getBoundingBox();
+        Rectangled bounds = getLocalBounds();
         if (bounds == null) {
             return null;
         }
@@ -129,6 +151,15 @@ public abstract class Entity {
         return new Rectangled(bounds).translate(position);
     }
 
+    /**
+     * Get the bounding box of this entity relative to its position. This is shared between entities, so it must not be modified.
+     *
+     * @return Untranslated entity bounding box, or null if it has none.
+     */
+    public Rectangled getLocalBounds() {
+        return getSprite().getBoundingBox();
+    }
+
     /**
      * Get the draw depth of this entity.
      *
@@ -0,0 +1,320 @@
+package otherspace.core.engine.world.entities;
+
+import org.joml.primitives.Rectangled;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * Spatial hash of every loaded entity, dividing the world into 4x4 tile cells.
+ * Entities are filed under the cell holding their position and moved between cells as they move, so finding the entities
+ * in an area only looks at the cells overlapping it, rather than at every entity in the chunks around it.
+ * Queries do not allocate anything, results are either returned directly or added to a buffer supplied by the caller.
+ */
+public class EntityGrid {
+    private static final int CELL_SHIFT = 2;
+    private static final int INITIAL_CAPACITY = 256;
+
+    // Open addressing table of cells, keyed by packed cell coordinates. Cells that become empty stay in the table
+    // until it is next resized, so entities moving back and forth over a border do not keep creating new ones.
+    private long[] keys;
+    private Entity[][] cells;
+    private int[] counts;
+    private int mask;
+    private int usedSlots;
+    private int size;
+
+    // How far the bounding box of any entity reaches from its position, used to widen queries.
+    // Entities are usually added from their constructor, before their sprite is known, so they are only measured once
+    // the next query runs.
+    private double maxReach;
+    private final ArrayList<Entity> unmeasured;
+
+    public EntityGrid() {
+        allocate(INITIAL_CAPACITY);
+        unmeasured = new ArrayList<>();
+    }
+
+    /**
+     * Start tracking an entity.
+     *
+     * @param entity Entity to add.
+     */
+    public void add(Entity entity) {
+        if (entity.inGrid) {
+            return;
+        }
+
+        unmeasured.add(entity);
+        entity.gridCell = getCell(entity.position.x, entity.position.y);
+        entity.inGrid = true;
+        insert(entity.gridCell, entity);
+        size++;
+    }
+
+    /**
+     * Stop tracking an entity.
+     *
+     * @param entity Entity to remove.
+     */
+    public void remove(Entity entity) {
+        if (!entity.inGrid) {
+            return;
+        }
+
+        delete(entity.gridCell, entity);
+        entity.inGrid = false;
+        size--;
+    }
+
+    /**
+     * Move an entity to the cell matching its current position, if it has left its old one.
+     *
+     * @param entity Entity that may have moved.
+     */
+    public void update(Entity entity) {
+        if (!entity.inGrid) {
+            return;
+        }
+
+        long cell = getCell(entity.position.x, entity.position.y);
+        if (cell != entity.gridCell) {
+            delete(entity.gridCell, entity);
+            insert(cell, entity);
+            entity.gridCell = cell;
+        }
+    }
+
+    /**
+     * Get the number of entities being tracked.
+     *
+     * @return Number of entities.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Find an entity of a given type whose bounding box contains a point.
+     *
+     * @param type Type of entity to look for.
+     * @param x X coordinate of point.
+     * @param y Y coordinate of point.
+     * @return First entity found at point, or null if there is none.
+     */
+    @SuppressWarnings("unchecked")
+    public <E extends Entity> E getEntityAt(Class<E> type, double x, double y) {
+        measureReach();
+        int minCX = (int) Math.floor(x - maxReach) >> CELL_SHIFT;
+        int minCY = (int) Math.floor(y - maxReach) >> CELL_SHIFT;
+        int maxCX = (int) Math.floor(x + maxReach) >> CELL_SHIFT;
+        int maxCY = (int) Math.floor(y + maxReach) >> CELL_SHIFT;
+
+        for (int cx = minCX; cx <= maxCX; cx++) {
+            for (int cy = minCY; cy <= maxCY; cy++) {
+                int slot = find(pack(cx, cy));
+                for (int i = 0; slot >= 0 && i < counts[slot]; i++) {
+                    Entity e = cells[slot][i];
+                    Rectangled box = e.getLocalBounds();
+                    if (box != null && type.isInstance(e)
+                            && x > box.minX + e.position.x && y > box.minY + e.position.y
+                            && x < box.maxX + e.position.x && y < box.maxY + e.position.y) {
+                        return (E) e;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Find every entity of a given type whose bounding box intersects an area.
+     *
+     * @param type Type of entity to look for.
+     * @param area Area to check.
+     * @param out Collection to add the entities found to. It is not cleared first.
+     */
+    @SuppressWarnings("unchecked")
+    public <E extends Entity> void getIntersecting(Class<E> type, Rectangled area, Collection<? super E> out) {
+        measureReach();
+        int minCX = (int) Math.floor(area.minX - maxReach) >> CELL_SHIFT;
+        int minCY = (int) Math.floor(area.minY - maxReach) >> CELL_SHIFT;
+        int maxCX = (int) Math.floor(area.maxX + maxReach) >> CELL_SHIFT;
+        int maxCY = (int) Math.floor(area.maxY + maxReach) >> CELL_SHIFT;
+
+        for (int cx = minCX; cx <= maxCX; cx++) {
+            for (int cy = minCY; cy <= maxCY; cy++) {
+                int slot = find(pack(cx, cy));
+                for (int i = 0; slot >= 0 && i < counts[slot]; i++) {
+                    Entity e = cells[slot][i];
+                    Rectangled box = e.getLocalBounds();
+                    if (box != null && type.isInstance(e)
+                            && box.minX + e.position.x < area.maxX && box.maxX + e.position.x > area.minX
+                            && box.maxY + e.position.y > area.minY && box.minY + e.position.y < area.maxY) {
+                        out.add((E) e);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Widen the reach of queries to cover every entity added since the last query.
+     */
+    private void measureReach() {
+        for (int i = 0; i < unmeasured.size(); i++) {
+            Rectangled box = unmeasured.get(i).getLocalBounds();
+            if (box != null) {
+                maxReach = Math.max(maxReach, Math.max(Math.max(Math.abs(box.minX), Math.abs(box.maxX)), Math.max(Math.abs(box.minY), Math.abs(box.maxY))));
+            }
+        }
+        unmeasured.clear();
+    }
+
+    /**
+     * Get the cell holding a position.
+     *
+     * @param x X coordinate in world.
+     * @param y Y coordinate in world.
+     * @return Packed cell coordinates.
+     */
+    private static long getCell(double x, double y) {
+        return pack((int) Math.floor(x) >> CELL_SHIFT, (int) Math.floor(y) >> CELL_SHIFT);
+    }
+
+    /**
+     * Pack a pair of cell coordinates into a single key.
+     *
+     * @param cx X coordinate of cell.
+     * @param cy Y coordinate of cell.
+     * @return Packed coordinates.
+     */
+    private static long pack(int cx, int cy) {
+        return (long) cx << 32 | cy & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Find the slot holding a cell.
+     *
+     * @param key Packed cell coordinates.
+     * @return Slot index, or -1 if the cell does not exist.
+     */
+    private int find(long key) {
+        for (int i = slot(key); cells[i] != null; i = i + 1 & mask) {
+            if (keys[i] == key) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Add an entity to a cell, creating the cell if needed.
+     *
+     * @param key Packed cell coordinates.
+     * @param entity Entity to add.
+     */
+    private void insert(long key, Entity entity) {
+        int i = slot(key);
+        while (cells[i] != null && keys[i] != key) {
+            i = i + 1 & mask;
+        }
+
+        if (cells[i] == null) {
+            if ((usedSlots + 1) * 2 > keys.length) {
+                resize();
+                insert(key, entity);
+                return;
+            }
+            keys[i] = key;
+            cells[i] = new Entity[4];
+            usedSlots++;
+        }
+        else if (counts[i] == cells[i].length) {
+            Entity[] grown = new Entity[cells[i].length * 2];
+            System.arraycopy(cells[i], 0, grown, 0, counts[i]);
+            cells[i] = grown;
+        }
+        cells[i][counts[i]++] = entity;
+    }
+
+    /**
+     * Remove an entity from a cell.
+     *
+     * @param key Packed cell coordinates.
+     * @param entity Entity to remove.
+     */
+    private void delete(long key, Entity entity) {
+        int slot = find(key);
+        if (slot < 0) {
+            return;
+        }
+
+        Entity[] cell = cells[slot];
+        for (int i = 0; i < counts[slot]; i++) {
+            if (cell[i] == entity) {
+                cell[i] = cell[--counts[slot]];
+                cell[counts[slot]] = null;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Rebuild the table with only the cells that still hold entities, growing it if they would fill over a quarter of it.
+     */
+    private void resize() {
+        long[] oldKeys = keys;
+        Entity[][] oldCells = cells;
+        int[] oldCounts = counts;
+
+        int occupied = 0;
+        for (int count : oldCounts) {
+            if (count > 0) {
+                occupied++;
+            }
+        }
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < occupied * 4) {
+            capacity *= 2;
+        }
+        allocate(capacity);
+
+        for (int i = 0; i < oldCells.length; i++) {
+            if (oldCounts[i] > 0) {
+                int j = slot(oldKeys[i]);
+                while (cells[j] != null) {
+                    j = j + 1 & mask;
+                }
+                keys[j] = oldKeys[i];
+                cells[j] = oldCells[i];
+                counts[j] = oldCounts[i];
+                usedSlots++;
+            }
+        }
+    }
+
+    /**
+     * Replace the table with an empty one.
+     *
+     * @param capacity Table size, which must be a power of two.
+     */
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        cells = new Entity[capacity][];
+        counts = new int[capacity];
+        mask = capacity - 1;
+        usedSlots = 0;
+    }
+
+    /**
+     * Get the slot a key would ideally be stored in.
+     *
+     * @param key Packed cell coordinates.
+     * @return Slot index.
+     */
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ hash >>> 32) & mask;
+    }
+}
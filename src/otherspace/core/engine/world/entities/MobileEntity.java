@@ -12,6 +12,8 @@ import otherspace.core.engine.world.tiles.GroundTile;
 import otherspace.core.session.Drawer;
 import otherspace.core.session.SoundManager;
 import otherspace.core.session.scenes.world.Chunk;
+import otherspace.core.session.scenes.world.ChunkCursor;
+import otherspace.core.session.scenes.world.World;
 import otherspace.game.entities.Player;
 import otherspace.game.tiles.GroundTiles;
 
@@ -26,6 +28,9 @@ public abstract class MobileEntity extends Entity {
     protected boolean stepPattern;
     protected SoundManager.AudioSource footstepSound;
 
+    // Most tile lookups are in the chunk this entity is standing in, so remember it between them.
+    protected final ChunkCursor chunkCursor;
+
     public MobileEntity(Vector2d position) {
         super(position);
 
@@ -35,6 +40,7 @@ public abstract class MobileEntity extends Entity {
 
         stepPattern = false;
         footstepSound = null;
+        chunkCursor = new ChunkCursor();
     }
 
     @Override
@@ -42,8 +48,7 @@ public abstract class MobileEntity extends Entity {
         super.update();
 
         lastPosition = new Vector2d(position);
-        Vector2i curCC = new Vector2i((int) (position.x / 16), (int) (position.y / 16));
-        Chunk curChunk = Chunk.getChunk(curCC);
+        Chunk curChunk = chunkCursor.getChunk((int) (position.x / 16), (int) (position.y / 16));
 
         // Handle sandbox mode.
         if (this instanceof Player p && p.getGamemode() == 1) {
@@ -52,8 +57,8 @@ public abstract class MobileEntity extends Entity {
         else {
             // Adjust movement speed based on terrain.
             double curMoveSpeed = metersPerSecond;
-            int floorID = Chunk.getTileAt(Chunk.FTM, position);
-            int groundID = Chunk.getTileAt(Chunk.GTM, position);
+            int floorID = chunkCursor.getTileAt(Chunk.FTM, position.x, position.y);
+            int groundID = chunkCursor.getTileAt(Chunk.GTM, position.x, position.y);
             FloorTile floorTile = FloorTile.get(floorID);
             GroundTile groundTile = GroundTile.get(groundID);
             if (floorTile != null) {
@@ -65,17 +70,18 @@ public abstract class MobileEntity extends Entity {
 
             // Move and collide with terrain and objects.
             if (moveVec != null && !moveVec.equals(0, 0) && getBounds() != null) {
-                double destX = position.x + moveVec.x * curMoveSpeed / 60;
-                double destY = position.y + moveVec.y * curMoveSpeed / 60;
-                CollisionUtils.moveAndCollide(this, new Vector2d(destX, destY), metersPerSecond);
+                CollisionUtils.moveAndCollide(this, moveVec.x * curMoveSpeed / 60, moveVec.y * curMoveSpeed / 60);
             }
 
             // If we moved, update our chunk.
             if (!position.equals(lastPosition) && curChunk != null && myChunk != curChunk) {
-                myChunk.localEntities.remove(this);
-                curChunk.localEntities.add(this);
+                myChunk.removeEntity(this);
+                curChunk.addEntity(this);
                 myChunk = curChunk;
             }
+            else if (!position.equals(lastPosition) && !(this instanceof Player)) {
+                markDirty();
+            }
 
             // If this entity moves, play a footstep sound.
             if (!isSilent() && !position.equals(lastPosition) && curChunk != null) {
@@ -97,6 +103,7 @@ public abstract class MobileEntity extends Entity {
             }
         }
         moveVec = new Vector2i();
+        World.getEntityGrid().update(this);
     }
 
     @Override
@@ -104,7 +111,7 @@ public abstract class MobileEntity extends Entity {
         Sprite sprite = getSprite();
 
         // Handle water
-        int tile = Chunk.getTileAt(Chunk.GTM, position);
+        int tile = chunkCursor.getTileAt(Chunk.GTM, position.x, position.y);
         if (tile == GroundTiles.SHALLOW_WATER) {
             Color bottom = new Color(0.8f, 0.8f, 1, 0.8f);
             sprite.drawPart((int) (position.x * 32), (int) (position.y * 32), Color.WHITE, Color.WHITE, bottom, bottom, 1, 1, spriteFrame, new Rectanglei(0, 0, sprite.getWidth(), sprite.getHeight()));
@@ -22,6 +22,13 @@ public abstract class EntityComponent<E extends Entity> {
         return myParent;
     }
 
+    /**
+     * Flag this component's parent as changed, to be called whenever saved component state is modified.
+     */
+    protected void markDirty() {
+        myParent.markDirty();
+    }
+
     /**
      * Convert this component into a JSON tree.
      *
@@ -47,6 +47,7 @@ public class Health<E extends LivingEntity> extends EntityComponent<E> {
      */
     public void setHP(int HP) {
         this.HP = Math.clamp(HP, 0, maxHP);
+        markDirty();
         if (HP <= 0) {
             getParent().kill();
         }
@@ -64,6 +65,7 @@ public class Health<E extends LivingEntity> extends EntityComponent<E> {
         else {
             this.maxHP = Math.max(1, maxHP);
         }
+        markDirty();
     }
 
 
@@ -74,6 +76,7 @@ public class Health<E extends LivingEntity> extends EntityComponent<E> {
      */
     public void heal(int amount) {
         HP += Math.clamp(amount, 0, maxHP - HP);
+        markDirty();
     }
 
     /**
@@ -84,6 +87,7 @@ public class Health<E extends LivingEntity> extends EntityComponent<E> {
     public void damage(int amount) {
         // TODO: Figure out how defense values will play into this.
         HP -= Math.clamp(amount, 0, HP);
+        markDirty();
 
         if (HP <= 0) {
             getParent().kill();
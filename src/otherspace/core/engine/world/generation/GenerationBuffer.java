@@ -0,0 +1,138 @@
+package otherspace.core.engine.world.generation;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import org.joml.Vector2d;
+import org.joml.Vector2i;
+import otherspace.core.engine.world.entities.Entity;
+import otherspace.core.registry.TileRegistry;
+import otherspace.core.session.scenes.world.ChunkData;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Working data for a batch of chunks being generated, shared by every pass of a {@link WorldGenerator}.
+ * Per-tile values are kept in flat arrays covering the whole batch, where the tile at (x, y) of the nth chunk is at index
+ * n * 256 + x * 16 + y. Tiles start out empty.
+ */
+public class GenerationBuffer {
+    public static final int CHUNK_TILES = 256;
+    private static final Gson GSON = new Gson();
+
+    private final Vector2i[] chunks;
+    private final float[][] noiseXs;
+    private final float[][] noiseYs;
+    private final JsonArray[] entities;
+
+    // Per-tile data.
+    public final float[] height;
+    public final int[] biome;
+    public final int[] ground;
+    public final int[] floor;
+    public final int[] wall;
+    public final boolean[] occupied;
+
+    public GenerationBuffer(List<Vector2i> chunks) {
+        int count = chunks.size();
+        this.chunks = new Vector2i[count];
+        noiseXs = new float[count][16];
+        noiseYs = new float[count][16];
+        entities = new JsonArray[count];
+        for (int c = 0; c < count; c++) {
+            Vector2i chunkCoords = chunks.get(c);
+            this.chunks[c] = new Vector2i(chunkCoords);
+            for (int i = 0; i < 16; i++) {
+                noiseXs[c][i] = (i / 16f) + chunkCoords.x;
+                noiseYs[c][i] = (i / 16f) + chunkCoords.y;
+            }
+            entities[c] = new JsonArray();
+        }
+
+        height = new float[count * CHUNK_TILES];
+        biome = new int[count * CHUNK_TILES];
+        ground = new int[count * CHUNK_TILES];
+        floor = new int[count * CHUNK_TILES];
+        wall = new int[count * CHUNK_TILES];
+        occupied = new boolean[count * CHUNK_TILES];
+        Arrays.fill(ground, TileRegistry.EMPTY);
+        Arrays.fill(floor, TileRegistry.EMPTY);
+        Arrays.fill(wall, TileRegistry.EMPTY);
+    }
+
+    /**
+     * Get the number of chunks in this batch.
+     *
+     * @return Chunk count.
+     */
+    public int getChunkCount() {
+        return chunks.length;
+    }
+
+    /**
+     * Get the coordinates of a chunk in this batch.
+     *
+     * @param chunk Index of chunk within batch.
+     * @return Chunk coordinates.
+     */
+    public Vector2i getChunk(int chunk) {
+        return chunks[chunk];
+    }
+
+    /**
+     * Get the noise coordinates of each column of a chunk, measured in chunks (i.e. chunk x + tile x / 16).
+     *
+     * @param chunk Index of chunk within batch.
+     * @return Noise x coordinates.
+     */
+    public float[] getNoiseXs(int chunk) {
+        return noiseXs[chunk];
+    }
+
+    /**
+     * Get the noise coordinates of each row of a chunk, measured in chunks (i.e. chunk y + tile y / 16).
+     *
+     * @param chunk Index of chunk within batch.
+     * @return Noise y coordinates.
+     */
+    public float[] getNoiseYs(int chunk) {
+        return noiseYs[chunk];
+    }
+
+    /**
+     * Queue an entity to be spawned once its chunk is added to the world.
+     *
+     * @param chunk Index of chunk within batch.
+     * @param type Entity type.
+     * @param position Entity position.
+     */
+    public void spawn(int chunk, Class<? extends Entity> type, Vector2d position) {
+        JsonObject spawn = new JsonObject();
+        spawn.add("type", new JsonPrimitive(type.getName()));
+        spawn.add("position", GSON.toJsonTree(position));
+        spawn.add("components", new JsonObject());
+        entities[chunk].add(spawn);
+    }
+
+    /**
+     * Get the finished data for a chunk in this batch.
+     *
+     * @param chunk Index of chunk within batch.
+     * @return Generated chunk data.
+     */
+    public ChunkData toChunkData(int chunk) {
+        int start = chunk * CHUNK_TILES;
+        return new ChunkData(
+                new Vector2i(chunks[chunk]),
+                Arrays.copyOfRange(ground, start, start + CHUNK_TILES),
+                Arrays.copyOfRange(floor, start, start + CHUNK_TILES),
+                Arrays.copyOfRange(wall, start, start + CHUNK_TILES),
+                entities[chunk],
+                false,
+                false,
+                true
+        );
+    }
+}
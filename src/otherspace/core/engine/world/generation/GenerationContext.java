@@ -0,0 +1,36 @@
+package otherspace.core.engine.world.generation;
+
+import java.io.File;
+
+/**
+ * Everything terrain generation needs to know about the world it is generating for, captured once so that chunks can be
+ * generated without a live world (e.g. on worker threads, or headless for benchmarks and pre-generation).
+ *
+ * @param seed World seed.
+ * @param mapType Generation map type.
+ * @param savePath Save file the world belongs to, or null if the world is not being saved.
+ */
+public record GenerationContext(int seed, int mapType, File savePath) {
+    /**
+     * Create a single octave noise generator using the world seed.
+     *
+     * @param frequency Noise frequency.
+     * @return Noise generator.
+     */
+    public NoiseGenerator noise(float frequency) {
+        return new NoiseGenerator(seed, frequency);
+    }
+
+    /**
+     * Create a fractal noise generator using the world seed.
+     *
+     * @param frequency Frequency of the first octave.
+     * @param octaves Number of octaves.
+     * @param lacunarity Factor the frequency is multiplied by for each octave.
+     * @param gain Factor the amplitude is multiplied by for each octave.
+     * @return Noise generator.
+     */
+    public NoiseGenerator noise(float frequency, int octaves, float lacunarity, float gain) {
+        return new NoiseGenerator(seed, frequency, octaves, lacunarity, gain);
+    }
+}
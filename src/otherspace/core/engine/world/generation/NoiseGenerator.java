@@ -0,0 +1,163 @@
+package otherspace.core.engine.world.generation;
+
+import otherspace.core.engine.utils.NoiseUtils;
+
+/**
+ * Immutable source of seeded perlin noise, optionally layered into several octaves of fractal (FBm) noise.
+ * Each octave multiplies the frequency by the lacunarity and the amplitude by the gain, and the sum is divided by the total
+ * amplitude so that values stay between 0 and 1.
+ * Generators hold no state, so one may be shared by any number of threads.
+ */
+public class NoiseGenerator {
+    private final int seed;
+    private final float frequency;
+    private final int octaves;
+    private final float lacunarity;
+    private final float gain;
+    private final float amplitude;
+
+    public NoiseGenerator(int seed, float frequency) {
+        this(seed, frequency, 1, 2, 0.5f);
+    }
+
+    public NoiseGenerator(int seed, float frequency, int octaves, float lacunarity, float gain) {
+        if (octaves < 1) {
+            throw new IllegalArgumentException("Noise must have at least one octave, got " + octaves + ".");
+        }
+
+        this.seed = seed;
+        this.frequency = frequency;
+        this.octaves = octaves;
+        this.lacunarity = lacunarity;
+        this.gain = gain;
+
+        float amplitude = 0;
+        float octaveAmplitude = 1;
+        for (int i = 0; i < octaves; i++) {
+            amplitude += octaveAmplitude;
+            octaveAmplitude *= gain;
+        }
+        this.amplitude = amplitude;
+    }
+
+    /**
+     * Sample this noise at a point.
+     *
+     * @param x X value.
+     * @param y Y value.
+     * @return Noise value from 0 to 1.
+     */
+    public float sample(float x, float y) {
+        if (octaves == 1) {
+            return NoiseUtils.perlinNoise(seed, x * frequency, y * frequency);
+        }
+
+        float sum = 0;
+        float octaveFrequency = frequency;
+        float octaveAmplitude = 1;
+        for (int i = 0; i < octaves; i++) {
+            sum += octaveAmplitude * NoiseUtils.perlinNoise(seed, x * octaveFrequency, y * octaveFrequency);
+            octaveFrequency *= lacunarity;
+            octaveAmplitude *= gain;
+        }
+        return sum / amplitude;
+    }
+
+    /**
+     * Sample this noise at every combination of the given coordinates. Each value is identical to calling
+     * {@link #sample(float, float)} at the same point.
+     *
+     * @param out Array to fill, indexed by x * ys.length + y (e.g. the tile order of a chunk).
+     * @param xs X values of each column.
+     * @param ys Y values of each row.
+     */
+    public void fill(float[] out, float[] xs, float[] ys) {
+        fill(out, 0, xs, ys);
+    }
+
+    /**
+     * Sample this noise at every combination of the given coordinates, into part of an array (e.g. one chunk out of a batch).
+     *
+     * @param out Array to fill, indexed by offset + x * ys.length + y.
+     * @param offset Index of the first sample in the array.
+     * @param xs X values of each column.
+     * @param ys Y values of each row.
+     */
+    public void fill(float[] out, int offset, float[] xs, float[] ys) {
+        NoiseUtils.perlinNoise(out, offset, seed, xs, ys, frequency);
+        if (octaves == 1) {
+            return;
+        }
+
+        int samples = xs.length * ys.length;
+        float[] octave = new float[samples];
+        float octaveFrequency = frequency * lacunarity;
+        float octaveAmplitude = gain;
+        for (int i = 1; i < octaves; i++) {
+            NoiseUtils.perlinNoise(octave, seed, xs, ys, octaveFrequency);
+            for (int j = 0; j < samples; j++) {
+                out[offset + j] += octaveAmplitude * octave[j];
+            }
+            octaveFrequency *= lacunarity;
+            octaveAmplitude *= gain;
+        }
+        for (int j = 0; j < samples; j++) {
+            out[offset + j] /= amplitude;
+        }
+    }
+
+    /**
+     * Get a copy of this generator using a different seed.
+     *
+     * @param seed New seed.
+     * @return Generator with the same settings and the given seed.
+     */
+    public NoiseGenerator withSeed(int seed) {
+        return new NoiseGenerator(seed, frequency, octaves, lacunarity, gain);
+    }
+
+    /**
+     * Get the seed of this generator.
+     *
+     * @return Noise seed.
+     */
+    public int getSeed() {
+        return seed;
+    }
+
+    /**
+     * Get the frequency of the first octave.
+     *
+     * @return Base frequency.
+     */
+    public float getFrequency() {
+        return frequency;
+    }
+
+    /**
+     * Get the number of octaves layered together.
+     *
+     * @return Octave count.
+     */
+    public int getOctaves() {
+        return octaves;
+    }
+
+    /**
+     * Get the factor the frequency is multiplied by for each octave.
+     *
+     * @return Lacunarity.
+     */
+    public float getLacunarity() {
+        return lacunarity;
+    }
+
+    /**
+     * Get the factor the amplitude is multiplied by for each octave.
+     *
+     * @return Gain.
+     */
+    public float getGain() {
+        return gain;
+    }
+}
@@ -0,0 +1,57 @@
+package otherspace.core.engine.world.generation;
+
+/**
+ * Generates the terrain of a map type as a series of passes over a {@link GenerationBuffer}.
+ * Each pass works on every chunk in the buffer at once, and only needs to fill in what its stage is responsible for, so
+ * passes can be timed or replaced on their own. Generators are shared by every chunk loader thread, so they must not hold
+ * any mutable state.
+ */
+public interface WorldGenerator {
+    /**
+     * Work out the height of each tile.
+     *
+     * @param buffer Chunks being generated.
+     */
+    default void generateHeight(GenerationBuffer buffer) {}
+
+    /**
+     * Decide the biome (e.g. rock type) of each tile.
+     *
+     * @param buffer Chunks being generated.
+     */
+    default void generateBiomes(GenerationBuffer buffer) {}
+
+    /**
+     * Place the ground, floor and wall tiles.
+     *
+     * @param buffer Chunks being generated.
+     */
+    void generateSurface(GenerationBuffer buffer);
+
+    /**
+     * Spawn resources on top of the surface.
+     *
+     * @param buffer Chunks being generated.
+     */
+    default void generateResources(GenerationBuffer buffer) {}
+
+    /**
+     * Spawn foliage wherever nothing else has been placed.
+     *
+     * @param buffer Chunks being generated.
+     */
+    default void generateFoliage(GenerationBuffer buffer) {}
+
+    /**
+     * Run every pass in order.
+     *
+     * @param buffer Chunks being generated.
+     */
+    default void generate(GenerationBuffer buffer) {
+        generateHeight(buffer);
+        generateBiomes(buffer);
+        generateSurface(buffer);
+        generateResources(buffer);
+        generateFoliage(buffer);
+    }
+}
@@ -0,0 +1,35 @@
+package otherspace.core.engine.world.tiles;
+
+import java.util.ArrayDeque;
+
+/**
+ * Autotiles every tile changed since the last update in a single pass.
+ * Instead of each change immediately updating itself and its neighbours through the chunk map, tilemaps mark the
+ * changed cells and their neighbours as dirty, and each dirty cell is then updated once from a padded copy of its tilemap.
+ * Only tiles using a {@link MaskAutoTileStrategy} are batched, any other strategy is still run as soon as its tile changes.
+ */
+public final class AutoTiler {
+    private AutoTiler() {}
+
+    private static final ArrayDeque<Tilemap> dirtyTilemaps = new ArrayDeque<>();
+    private static final int[] window = new int[18 * 18];
+
+    /**
+     * Add a tilemap with dirty cells to the queue.
+     *
+     * @param tilemap Tilemap to add.
+     */
+    static void queue(Tilemap tilemap) {
+        dirtyTilemaps.add(tilemap);
+    }
+
+    /**
+     * Autotile every dirty cell.
+     */
+    public static void update() {
+        Tilemap tilemap;
+        while ((tilemap = dirtyTilemaps.poll()) != null) {
+            tilemap.autoTileDirtyCells(window);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package otherspace.core.engine.world.tiles;
+
+import otherspace.core.session.scenes.world.Chunk;
+
+/**
+ * Auto tile strategy where a tile's frame only depends on which of the 8 tiles around it are filled.
+ * Since the frame for every combination of neighbours can be worked out ahead of time, these tiles are autotiled in
+ * batches by the {@link AutoTiler} using a lookup table, rather than by calling {@link #autoTile} on every change.
+ * <p>
+ * Masks passed to {@link #draw} have a bit set for each neighbour that is empty: 8 for top, 4 for bottom, 2 for left,
+ * 1 for right, 128 for top left, 64 for top right, 32 for bottom left and 16 for bottom right.
+ */
+public abstract class MaskAutoTileStrategy implements AutoTileStrategy {
+    private final byte layer;
+    private final boolean useCorners;
+    private int[] frameTable;
+
+    /**
+     * Create a new mask based strategy.
+     *
+     * @param layer Layer the tiles using this strategy are placed on.
+     * @param useCorners Whether the frame depends on the corner tiles, or only on the side tiles.
+     */
+    protected MaskAutoTileStrategy(byte layer, boolean useCorners) {
+        this.layer = layer;
+        this.useCorners = useCorners;
+    }
+
+    /**
+     * Queue the tile at a given location and the tiles around it to be autotiled on the next {@link AutoTiler#update()}.
+     *
+     * @param base Tile ID on server.
+     * @param x X Position of tile in world.
+     * @param y Y Position of tile in world.
+     * @param recursive Unused, the tiles around this one are always updated as well.
+     */
+    @Override
+    public void autoTile(int base, double x, double y, boolean recursive) {
+        Chunk chunk = Chunk.getChunkAt(x, y);
+        if (chunk != null) {
+            chunk.getTileData(layer).autoTile(Math.floorMod((int) Math.floor(x), 16), Math.floorMod((int) Math.floor(y), 16));
+        }
+    }
+
+    /**
+     * Get the connected texture bits of a tile with the given neighbours.
+     *
+     * @param mask Bitmask of empty neighbours.
+     * @return Frame of tile, already shifted into place so it can be combined with the tile ID.
+     */
+    public int getFrameBits(int mask) {
+        if (frameTable == null) {
+            int[] table = new int[256];
+            for (int i = 0; i < table.length; i++) {
+                table[i] = (draw(useCorners ? i : i & 0xF) << 22) & 0x7FC00000;
+            }
+            frameTable = table;
+        }
+        return frameTable[mask];
+    }
+}
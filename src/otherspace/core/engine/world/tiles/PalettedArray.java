@@ -0,0 +1,199 @@
+package otherspace.core.engine.world.tiles;
+
+/**
+ * Fixed size array of ints that stores each distinct value once in a palette, and each element as a bit-packed index into it.
+ * Indices start at 1 bit and are widened to 2, 4, 8 and then 16 bits as new values are added, so an area that only uses
+ * a handful of different tiles takes a small fraction of the memory of a plain int array.
+ */
+public class PalettedArray {
+    private static final int MAX_BITS_SHIFT = 4;
+
+    private final int size;
+    private int[] palette;
+    private int paletteSize;
+
+    // Index width is always 1 << bitsShift bits, so indices never straddle two longs.
+    private int bitsShift;
+    private int indexMask;
+    private long[] indices;
+
+    public PalettedArray(int size, int initialValue) {
+        this.size = size;
+        palette = new int[] {initialValue, 0};
+        paletteSize = 1;
+        resize(0);
+    }
+
+    /**
+     * Get the value at a given position.
+     *
+     * @param i Position in array.
+     * @return Value at position.
+     */
+    public int get(int i) {
+        return palette[getIndex(i)];
+    }
+
+    /**
+     * Set the value at a given position, widening the indices if this is a value the palette does not hold yet.
+     *
+     * @param i Position in array.
+     * @param value Value to set.
+     */
+    public void set(int i, int value) {
+        int index = findInPalette(value);
+        if (index < 0) {
+            index = addToPalette(value);
+        }
+        setIndex(i, index);
+    }
+
+    /**
+     * Replace every value in this array.
+     *
+     * @param values Values to use, which must be the same length as this array.
+     */
+    public void setAll(int[] values) {
+        if (values.length != size) {
+            throw new IllegalStateException("ERROR: Invalid fill array provided to paletted array.");
+        }
+
+        // Start from an empty palette, so values that are no longer used do not keep taking up index space.
+        palette[0] = values[0];
+        paletteSize = 1;
+        indices = null;
+        resize(0);
+        for (int i = 0; i < size; i++) {
+            set(i, values[i]);
+        }
+    }
+
+    /**
+     * Get the number of values in this array.
+     *
+     * @return Array length.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get how many bits each element currently takes up.
+     *
+     * @return Index width, in bits.
+     */
+    public int getBitsPerIndex() {
+        return 1 << bitsShift;
+    }
+
+    /**
+     * Get the palette index stored at a position.
+     *
+     * @param i Position in array.
+     * @return Palette index.
+     */
+    private int getIndex(int i) {
+        int offset = (i << bitsShift) & 63;
+        return (int) (indices[(i << bitsShift) >>> 6] >>> offset) & indexMask;
+    }
+
+    /**
+     * Store a palette index at a position.
+     *
+     * @param i Position in array.
+     * @param index Palette index.
+     */
+    private void setIndex(int i, int index) {
+        int word = (i << bitsShift) >>> 6;
+        int offset = (i << bitsShift) & 63;
+        indices[word] = (indices[word] & ~((long) indexMask << offset)) | ((long) index << offset);
+    }
+
+    /**
+     * Find a value in the palette.
+     *
+     * @param value Value to find.
+     * @return Palette index, or -1 if the value is not in the palette.
+     */
+    private int findInPalette(int value) {
+        for (int i = 0; i < paletteSize; i++) {
+            if (palette[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Add a value to the palette, making room for it first if the palette is full.
+     *
+     * @param value Value to add.
+     * @return Palette index of value.
+     */
+    private int addToPalette(int value) {
+        if (paletteSize == 1 << (1 << bitsShift)) {
+            // Values that were overwritten may have left unused entries behind, so try clearing those out first.
+            removeUnused();
+            if (paletteSize == 1 << (1 << bitsShift)) {
+                if (bitsShift == MAX_BITS_SHIFT) {
+                    throw new IllegalStateException("ERROR: Paletted array cannot hold more than " + paletteSize + " distinct values.");
+                }
+                resize(bitsShift + 1);
+            }
+        }
+
+        if (paletteSize == palette.length) {
+            int[] newPalette = new int[Math.min(palette.length * 2, 1 << (1 << bitsShift))];
+            System.arraycopy(palette, 0, newPalette, 0, paletteSize);
+            palette = newPalette;
+        }
+        palette[paletteSize] = value;
+        return paletteSize++;
+    }
+
+    /**
+     * Remove palette entries that no element refers to anymore.
+     */
+    private void removeUnused() {
+        int[] remap = new int[paletteSize];
+        for (int i = 0; i < size; i++) {
+            remap[getIndex(i)] = 1;
+        }
+
+        int used = 0;
+        for (int i = 0; i < paletteSize; i++) {
+            if (remap[i] != 0) {
+                palette[used] = palette[i];
+                remap[i] = used++;
+            }
+        }
+        if (used == paletteSize) {
+            return;
+        }
+
+        for (int i = 0; i < size; i++) {
+            setIndex(i, remap[getIndex(i)]);
+        }
+        paletteSize = used;
+    }
+
+    /**
+     * Repack every index with a different width.
+     *
+     * @param newBitsShift Log2 of the new index width.
+     */
+    private void resize(int newBitsShift) {
+        long[] newIndices = new long[Math.max(1, (size << newBitsShift) + 63 >>> 6)];
+        int newMask = (1 << (1 << newBitsShift)) - 1;
+        if (indices != null) {
+            for (int i = 0; i < size; i++) {
+                long index = getIndex(i);
+                newIndices[(i << newBitsShift) >>> 6] |= index << ((i << newBitsShift) & 63);
+            }
+        }
+
+        indices = newIndices;
+        bitsShift = newBitsShift;
+        indexMask = newMask;
+    }
+}
@@ -1,34 +1,67 @@
 package otherspace.core.engine.world.tiles;
 
-import org.joml.Vector2d;
 import org.joml.Vector2i;
 import org.joml.primitives.Rectangled;
 import otherspace.core.engine.Camera;
 import otherspace.core.engine.Color;
+import otherspace.core.registry.TileRegistry;
 import otherspace.core.session.scenes.SceneManager;
 import otherspace.core.session.scenes.world.Chunk;
 import otherspace.core.session.window.RenderHandler;
 
+import java.util.Arrays;
+
 /**
  * Defines a grid holding a set of tiles, stored using their runtime ID.
+ * Tiles are indexed by x * height + y, the same order used by {@link otherspace.core.session.scenes.world.ChunkData}.
+ * Most tilemaps only use a few distinct tiles, so tile IDs and the connected texture bits set by autotiling are each kept
+ * in a {@link PalettedArray} rather than as full ints.
  */
 public class Tilemap {
+    // Tiles are only drawn from the render thread, so every tilemap can decode into the same buffer.
+    private static final int[] drawBuffer = new int[16 * 16];
+
     private final Tile[] tileSet;
+    private final Chunk chunk;
     private final Vector2i position;
     private final int width;
     private final int height;
     private final byte layer;
 
-    private final int[][] tiledata;
+    private final PalettedArray tiles;
+    private final PalettedArray frames;
+    private int modifications;
+
+    // One bit per tile, indexed by x * height + y, set wherever the tile is not empty. Collision only ever asks the wall
+    // layer which tiles are filled, so the other layers do not keep this (null).
+    private final long[] filled;
+
+    // Tiles along with the borders of neighbouring chunks, kept between frames while none of them change.
+    private int[] paddedTiles;
+    private boolean paddingValid;
+
+    // Cells waiting to be autotiled by the AutoTiler, or null if none are.
+    private long[] dirtyCells;
 
-    public Tilemap(Tile[] tileSet, Vector2i position, int width, int height, byte layer) {
+    public Tilemap(Tile[] tileSet, Chunk chunk, Vector2i position, int width, int height, byte layer) {
         this.tileSet = tileSet;
+        this.chunk = chunk;
         this.position = position;
         this.width = width;
         this.height = height;
         this.layer = layer;
 
-        this.tiledata = new int[width][height];
+        this.tiles = new PalettedArray(width * height, 0);
+        this.frames = new PalettedArray(width * height, 0);
+        if (layer == Chunk.STM) {
+            this.filled = new long[(width * height + 63) >>> 6];
+            for (int i = 0; i < width * height; i++) {
+                filled[i >>> 6] |= 1L << i;
+            }
+        }
+        else {
+            this.filled = null;
+        }
     }
 
     /**
@@ -41,80 +74,165 @@ public class Tilemap {
         int screenY = (int) ((position.y - worldCam.getPosition().y) * 32 + 0.01);
         if (worldCam.isAreaVisible(new Rectangled(screenX, screenY, screenX + 512, screenY + 512))) {
             if (splat) {
-                int[][] paddedData = getTileDataPadding();
-                RenderHandler.getInstance().drawTileMap(screenX, screenY, tileSet, paddedData, true, weight);
+                if (!paddingValid) {
+                    updateTileDataPadding();
+                }
+                RenderHandler.getInstance().drawTileMap(screenX, screenY, tileSet, paddedTiles, height + 2, true, weight);
             }
             else {
-                RenderHandler.getInstance().drawTileMap(screenX, screenY, tileSet, tiledata, false, weight);
+                copyTiles(drawBuffer);
+                RenderHandler.getInstance().drawTileMap(screenX, screenY, tileSet, drawBuffer, height, false, weight);
             }
         }
     }
 
+    /**
+     * Rebuild the cached copy of the tiledata along with the tiles immediately surrounding it.
+     */
+    private void updateTileDataPadding() {
+        if (paddedTiles == null) {
+            paddedTiles = new int[18 * 18];
+        }
+        getTileDataPadding(paddedTiles);
+        paddingValid = true;
+    }
+
     /**
      * Get the tiledata as well as the tiles immediately surrounding it.
      *
-     * @return Padded tiledata.
-     */
-    private int[][] getTileDataPadding() {
-        int[][] padded = new int[18][18];
-
-        Vector2i ownChunkPos = Chunk.getChunkAt(new Vector2d(position.x, position.y)).chunkCoords;
-        Chunk topLeftC = Chunk.getChunk(new Vector2i(ownChunkPos.x - 1, ownChunkPos.y - 1));
-        Chunk topC = Chunk.getChunk(new Vector2i(ownChunkPos.x, ownChunkPos.y - 1));
-        Chunk topRightC = Chunk.getChunk(new Vector2i(ownChunkPos.x + 1, ownChunkPos.y - 1));
-        Chunk rightC = Chunk.getChunk(new Vector2i(ownChunkPos.x + 1, ownChunkPos.y));
-        Chunk bottomRightC = Chunk.getChunk(new Vector2i(ownChunkPos.x + 1, ownChunkPos.y + 1));
-        Chunk bottomC = Chunk.getChunk(new Vector2i(ownChunkPos.x, ownChunkPos.y + 1));
-        Chunk bottomLeftC = Chunk.getChunk(new Vector2i(ownChunkPos.x - 1, ownChunkPos.y + 1));
-        Chunk leftC = Chunk.getChunk(new Vector2i(ownChunkPos.x - 1, ownChunkPos.y));
-
-        int[][] topLeft = topLeftC == null ? null : topLeftC.getTileData(layer).tiledata;
-        int[][] top = topC == null ? null : topC.getTileData(layer).tiledata;
-        int[][] topRight = topRightC == null ? null : topRightC.getTileData(layer).tiledata;
-        int[][] right = rightC == null ? null : rightC.getTileData(layer).tiledata;
-        int[][] bottomRight = bottomRightC == null ? null : bottomRightC.getTileData(layer).tiledata;
-        int[][] bottom = bottomC == null ? null : bottomC.getTileData(layer).tiledata;
-        int[][] bottomLeft = bottomLeftC == null ? null : bottomLeftC.getTileData(layer).tiledata;
-        int[][] left = leftC == null ? null : leftC.getTileData(layer).tiledata;
-
-        for (int i = 0; i < padded.length; i++) {
-            for (int j = 0; j < padded[i].length; j++) {
-                padded[i][j] = switch (i) {
-                    case 0 -> switch (j) {
-                        case 0 -> topLeft == null ? -1 : topLeft[15][15];
-                        case 17 -> bottomLeft == null ? -1 : bottomLeft[15][0];
-                        default -> left == null ? -1 : left[15][j - 1];
-                    };
-                    case 17 -> switch (j) {
-                        case 0 -> topRight == null ? -1 : topRight[0][15];
-                        case 17 -> bottomRight == null ? -1 : bottomRight[0][0];
-                        default -> right == null ? -1 : right[0][j - 1];
-                    };
-                    default -> switch (j) {
-                        case 0 -> top == null ? -1 : top[i - 1][15];
-                        case 17 -> bottom == null ? -1 : bottom[i - 1][0];
-                        default -> tiledata[i - 1][j - 1];
-                    };
-                };
-            }
-        }
-        return padded;
-    }
-
-    /**
-     * Replace the tiledata array with a provided one.
-     *
-     * @param tiledata Data to use.
-     */
-    public void fillTiles(int[][] tiledata) {
-        if (tiledata.length != width || tiledata[0].length != height) {
+     * @param padded Array to fill, indexed by x * 18 + y, where missing neighbours are empty.
+     */
+    private void getTileDataPadding(int[] padded) {
+        Arrays.fill(padded, TileRegistry.EMPTY);
+
+        Tilemap topLeft = getNeighbour(-1, -1);
+        Tilemap top = getNeighbour(0, -1);
+        Tilemap topRight = getNeighbour(1, -1);
+        Tilemap right = getNeighbour(1, 0);
+        Tilemap bottomRight = getNeighbour(1, 1);
+        Tilemap bottom = getNeighbour(0, 1);
+        Tilemap bottomLeft = getNeighbour(-1, 1);
+        Tilemap left = getNeighbour(-1, 0);
+
+        // Own tiles.
+        for (int x = 0; x < 16; x++) {
+            for (int y = 0; y < 16; y++) {
+                padded[(x + 1) * 18 + y + 1] = getTile(x, y);
+            }
+        }
+
+        // Left and right columns, then top and bottom rows.
+        for (int i = 0; i < 16; i++) {
+            if (left != null) {
+                padded[i + 1] = left.getTile(15, i);
+            }
+            if (right != null) {
+                padded[17 * 18 + i + 1] = right.getTile(0, i);
+            }
+            if (top != null) {
+                padded[(i + 1) * 18] = top.getTile(i, 15);
+            }
+            if (bottom != null) {
+                padded[(i + 1) * 18 + 17] = bottom.getTile(i, 0);
+            }
+        }
+
+        // Corners.
+        if (topLeft != null) {
+            padded[0] = topLeft.getTile(15, 15);
+        }
+        if (bottomLeft != null) {
+            padded[17] = bottomLeft.getTile(15, 0);
+        }
+        if (topRight != null) {
+            padded[17 * 18] = topRight.getTile(0, 15);
+        }
+        if (bottomRight != null) {
+            padded[17 * 18 + 17] = bottomRight.getTile(0, 0);
+        }
+    }
+
+    /**
+     * Get the tilemap on this layer of a neighbouring chunk.
+     *
+     * @param dx X offset of neighbour.
+     * @param dy Y offset of neighbour.
+     * @return Neighbour's tilemap, or null if it is not loaded.
+     */
+    private Tilemap getNeighbour(int dx, int dy) {
+        Chunk neighbour = chunk.getNeighbour(dx, dy);
+        return neighbour == null ? null : neighbour.getTileData(layer);
+    }
+
+    /**
+     * Mark the cached padded tiledata as outdated, e.g. because a neighbouring chunk was loaded or unloaded.
+     */
+    public void invalidatePadding() {
+        paddingValid = false;
+    }
+
+    /**
+     * Drop the cached padded tiledata to free up memory, e.g. once this tilemap is no longer being drawn.
+     */
+    public void releasePadding() {
+        paddedTiles = null;
+        paddingValid = false;
+    }
+
+    /**
+     * Replace every tile in this tilemap.
+     *
+     * @param tiles Tiles to use, indexed by x * height + y.
+     * @param autotile Whether to run the autotile schema of each tile as it is placed. If not, the tiles are copied in as they are.
+     */
+    public void fillTiles(int[] tiles, boolean autotile) {
+        if (tiles.length != width * height) {
             throw new IllegalStateException("ERROR: Invalid fill array provided to tilemap.");
         }
-        for (int i = 0; i < tiledata.length; i++) {
-            for (int j = 0; j < tiledata[i].length; j++) {
-                setTile(i, j, tiledata[i][j]);
+
+        if (autotile) {
+            for (int x = 0; x < width; x++) {
+                for (int y = 0; y < height; y++) {
+                    setTile(x, y, tiles[x * height + y], true);
+                }
             }
         }
+        else {
+            int[] absolute = new int[tiles.length];
+            int[] frameBits = new int[tiles.length];
+            for (int i = 0; i < tiles.length; i++) {
+                absolute[i] = tiles[i] & 0x803FFFFF;
+                frameBits[i] = (tiles[i] & 0x7FC00000) >>> 22;
+                if (this.tiles.get(i) != absolute[i]) {
+                    modifications++;
+                }
+                setFilled(i, absolute[i]);
+            }
+            this.tiles.setAll(absolute);
+            frames.setAll(frameBits);
+
+            // Every border tile may have changed, so every neighbour's padding has to be rebuilt.
+            paddingValid = false;
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    Tilemap neighbour = dx == 0 && dy == 0 ? null : getNeighbour(dx, dy);
+                    if (neighbour != null) {
+                        neighbour.paddingValid = false;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Copy every tile in this tilemap, including connected texture bits, into an array.
+     *
+     * @param out Array to copy into, indexed by x * height + y.
+     */
+    public void copyTiles(int[] out) {
+        for (int i = 0; i < width * height; i++) {
+            out[i] = tiles.get(i) | frames.get(i) << 22;
+        }
     }
 
     /**
@@ -125,12 +243,140 @@ public class Tilemap {
      * @param tile Tile to set.
      */
     public void setTile(int x, int y, int tile, boolean autotile) {
-        tiledata[x][y] = tile;
+        // Only count changes to the tile itself, not the connected texture bits set by autotiling.
+        int i = x * height + y;
+        int previous = getTile(x, y);
+        if ((previous & 0x803FFFFF) != (tile & 0x803FFFFF)) {
+            modifications++;
+        }
+        if (previous != tile) {
+            tiles.set(i, tile & 0x803FFFFF);
+            frames.set(i, (tile & 0x7FC00000) >>> 22);
+            setFilled(i, tile & 0x803FFFFF);
+            invalidatePadding(x, y);
+        }
         if (autotile) {
-            int index = tile < 0 ? tileSet.length - 1 : tile;
-            AutoTileStrategy strategy = tileSet[index].getAutoTileSchema();
-            if (strategy != null) {
-                strategy.autoTile(tile, position.x + x + 0.5f, position.y + y + 0.5f, false);
+            autoTile(x, y);
+        }
+    }
+
+    /**
+     * Update the bit tracking whether a tile is filled.
+     *
+     * @param i Index of tile.
+     * @param tile Absolute tile now at this index.
+     */
+    private void setFilled(int i, int tile) {
+        if (filled == null) {
+            return;
+        }
+        if (tile > -1) {
+            filled[i >>> 6] |= 1L << i;
+        }
+        else {
+            filled[i >>> 6] &= ~(1L << i);
+        }
+    }
+
+    /**
+     * Mark the cached padded tiledata of this tilemap, and of any neighbour whose border includes a tile, as outdated.
+     *
+     * @param x X Position of changed tile.
+     * @param y Y Position of changed tile.
+     */
+    private void invalidatePadding(int x, int y) {
+        paddingValid = false;
+        if (x > 0 && x < width - 1 && y > 0 && y < height - 1) {
+            return;
+        }
+
+        for (int dx = x == 0 ? -1 : 0; dx <= (x == width - 1 ? 1 : 0); dx++) {
+            for (int dy = y == 0 ? -1 : 0; dy <= (y == height - 1 ? 1 : 0); dy++) {
+                Tilemap neighbour = dx == 0 && dy == 0 ? null : getNeighbour(dx, dy);
+                if (neighbour != null) {
+                    neighbour.paddingValid = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Run the autotile schema of the tile at a given location, updating it and the tiles around it.
+     * Tiles using a {@link MaskAutoTileStrategy} are only queued, and are updated on the next {@link AutoTiler#update()}.
+     *
+     * @param x X Position in tilemap array.
+     * @param y Y Position in tilemap array.
+     */
+    public void autoTile(int x, int y) {
+        int tile = getTile(x, y) < 0 ? getTile(x, y) : getAbsoluteTile(x, y);
+        int index = tile < 0 ? tileSet.length - 1 : tile;
+        AutoTileStrategy strategy = tileSet[index].getAutoTileSchema();
+        if (strategy instanceof MaskAutoTileStrategy) {
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    markDirty(x + dx, y + dy);
+                }
+            }
+        }
+        else if (strategy != null) {
+            strategy.autoTile(tile, position.x + x + 0.5f, position.y + y + 0.5f, false);
+        }
+    }
+
+    /**
+     * Queue a cell to be autotiled. Cells outside this tilemap are passed on to the neighbouring chunk, if it is loaded.
+     *
+     * @param x X Position in tilemap array, from -1 to width.
+     * @param y Y Position in tilemap array, from -1 to height.
+     */
+    private void markDirty(int x, int y) {
+        int dx = x < 0 ? -1 : x >= width ? 1 : 0;
+        int dy = y < 0 ? -1 : y >= height ? 1 : 0;
+        if (dx != 0 || dy != 0) {
+            Tilemap neighbour = getNeighbour(dx, dy);
+            if (neighbour != null) {
+                neighbour.markDirty(x - dx * width, y - dy * height);
+            }
+            return;
+        }
+
+        if (dirtyCells == null) {
+            dirtyCells = new long[(width * height + 63) / 64];
+            AutoTiler.queue(this);
+        }
+        int i = x * height + y;
+        dirtyCells[i >>> 6] |= 1L << i;
+    }
+
+    /**
+     * Set the frame of every dirty cell from the tiles around it.
+     *
+     * @param window Scratch array to hold the padded tiledata.
+     */
+    void autoTileDirtyCells(int[] window) {
+        long[] dirty = dirtyCells;
+        dirtyCells = null;
+        if (dirty == null) {
+            return;
+        }
+
+        // Autotiling only changes frames, never which tiles are filled, so one copy of the surroundings serves every cell.
+        getTileDataPadding(window);
+        for (int word = 0; word < dirty.length; word++) {
+            long bits = dirty[word];
+            while (bits != 0) {
+                int i = word * 64 + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+
+                int tile = tiles.get(i);
+                if (tile < 0 || !(tileSet[tile].getAutoTileSchema() instanceof MaskAutoTileStrategy strategy)) {
+                    continue;
+                }
+
+                int c = (i / height + 1) * 18 + i % height + 1;
+                int sideMask = (window[c - 1] > -1 ? 0 : 8) + (window[c + 1] > -1 ? 0 : 4) + (window[c - 18] > -1 ? 0 : 2) + (window[c + 18] > -1 ? 0 : 1);
+                int cornerMask = (window[c - 19] > -1 ? 0 : 128) + (window[c + 17] > -1 ? 0 : 64) + (window[c - 17] > -1 ? 0 : 32) + (window[c + 19] > -1 ? 0 : 16);
+                setTile(i / height, i % height, tile | strategy.getFrameBits(sideMask + cornerMask), false);
             }
         }
     }
@@ -155,7 +401,8 @@ public class Tilemap {
      * @return Tile at location.
      */
     public int getTile(int x, int y) {
-        return tiledata[x][y];
+        int i = x * height + y;
+        return tiles.get(i) | frames.get(i) << 22;
     }
 
     /**
@@ -166,6 +413,70 @@ public class Tilemap {
      * @return Tile at location.
      */
     public int getAbsoluteTile(int x, int y) {
-        return tiledata[x][y] & 0x803FFFFF;
+        return tiles.get(x * height + y);
+    }
+
+    /**
+     * Check if a tile holds anything, without decoding it. Only available on the wall layer.
+     *
+     * @param x X index in tiledata.
+     * @param y Y index in tiledata.
+     * @return Whether the tile is not empty.
+     */
+    public boolean isFilled(int x, int y) {
+        int i = x * height + y;
+        return (filled[i >>> 6] & 1L << i) != 0;
+    }
+
+    /**
+     * Get which tiles in a column hold anything, as a bitmask with bit y set if the tile at y is not empty.
+     * Only available on the wall layer.
+     *
+     * @param x X index in tiledata.
+     * @return Bitmask of filled tiles in column.
+     */
+    public long getFilledColumn(int x) {
+        int start = x * height;
+        int offset = start & 63;
+        long bits = filled[start >>> 6] >>> offset;
+        if (offset + height > 64) {
+            bits |= filled[(start >>> 6) + 1] << (64 - offset);
+        }
+        return height >= 64 ? bits : bits & (1L << height) - 1;
+    }
+
+    /**
+     * Check if any tile in part of a row holds anything. Only available on the wall layer.
+     * The row's bit is picked out of every column sharing a word at once, so this takes one test per word rather than per tile.
+     *
+     * @param y Y index in tiledata.
+     * @param fromX First X index to check.
+     * @param toX X index after the last one to check.
+     * @return Whether any tile in the range is not empty.
+     */
+    public boolean isRowFilled(int y, int fromX, int toX) {
+        int word = -1;
+        long rowMask = 0;
+        for (int x = fromX; x < toX; x++) {
+            int i = x * height + y;
+            if (i >>> 6 != word) {
+                if (word >= 0 && (filled[word] & rowMask) != 0) {
+                    return true;
+                }
+                word = i >>> 6;
+                rowMask = 0;
+            }
+            rowMask |= 1L << i;
+        }
+        return word >= 0 && (filled[word] & rowMask) != 0;
+    }
+
+    /**
+     * Get the number of times a tile in this tilemap has been changed.
+     *
+     * @return Modification count.
+     */
+    public int getModifications() {
+        return modifications;
     }
 }
@@ -0,0 +1,82 @@
+package otherspace.core.registry;
+
+import otherspace.core.engine.world.generation.GenerationContext;
+import otherspace.core.engine.world.generation.WorldGenerator;
+
+import java.util.ArrayList;
+import java.util.function.Function;
+
+/**
+ * Handles the registration of world generators. Each generator is a map type, identified in save files by the order it
+ * was registered in.
+ */
+public class WorldGeneratorRegistry {
+    private static boolean initialized = false;
+    private static final ArrayList<String> handles = new ArrayList<>();
+    private static final ArrayList<Function<GenerationContext, WorldGenerator>> factories = new ArrayList<>();
+
+    /**
+     * Complete registry of world generators.
+     */
+    public static void registerGenerators() {
+        initialized = true;
+    }
+
+    /**
+     * Create the generator for a world.
+     *
+     * @param context World to create a generator for.
+     * @return Generator for the world's map type.
+     */
+    public static WorldGenerator create(GenerationContext context) {
+        int mapType = context.mapType();
+        if (mapType < 0 || mapType >= factories.size()) {
+            System.err.println("Unknown map type " + mapType + ", falling back to " + handles.getFirst() + ".");
+            mapType = 0;
+        }
+        return factories.get(mapType).apply(context);
+    }
+
+    /**
+     * Get the number of registered map types.
+     *
+     * @return Map type count.
+     */
+    public static int getCount() {
+        return factories.size();
+    }
+
+    /**
+     * Get the name of a map type, without its mod handle.
+     *
+     * @param mapType Map type.
+     * @return Name of map type.
+     */
+    public static String getName(int mapType) {
+        String handle = handles.get(mapType);
+        return handle.substring(handle.indexOf('/') + 1);
+    }
+
+    String modHandle;
+
+    public WorldGeneratorRegistry(String modHandle) {
+        this.modHandle = modHandle;
+    }
+
+    /**
+     * Register a new map type.
+     *
+     * @param name Name of map type.
+     * @param factory Function creating the generator for a world of this type.
+     * @return Map type ID.
+     */
+    public int register(String name, Function<GenerationContext, WorldGenerator> factory) {
+        if (initialized) {
+            throw new IllegalStateException("ERROR: Cannot add world generator after registry phase has been completed!");
+        }
+
+        handles.add(modHandle + "/" + name);
+        factories.add(factory);
+        return factories.size() - 1;
+    }
+}
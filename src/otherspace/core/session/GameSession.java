@@ -45,6 +45,7 @@ public class GameSession extends Session {
         TileRegistry.registerTiles();
         RecipeRegistry.registerRecipes();
         EntityRegistry.registerEntities();
+        WorldGeneratorRegistry.registerGenerators();
 
         // Complete Registry
         // Sprites and Fonts
@@ -5,6 +5,7 @@ import otherspace.core.engine.Menu;
 import otherspace.core.engine.guicomponents.Button;
 import otherspace.core.engine.guicomponents.InputField;
 import otherspace.core.engine.utils.SaveUtils;
+import otherspace.core.registry.WorldGeneratorRegistry;
 import otherspace.core.session.Drawer;
 import otherspace.core.session.SettingsManager;
 import otherspace.core.session.scenes.SceneManager;
@@ -27,7 +28,7 @@ public class WorldCreate extends Menu {
     InputField worldSeedField = new InputField(524);
 
     Button worldCreateGamemodeToggle = new Button(524, 64, "menu_worldcreate_gmtoggle", (_) -> defaultGM = defaultGM == 0 ? 1 : 0);
-    Button worldCreateMapTypeToggle = new Button(524, 64, "menu_worldcreate_mttoggle", (_) -> mapType = mapType == 0 ? 1 : 0);
+    Button worldCreateMapTypeToggle = new Button(524, 64, "menu_worldcreate_mttoggle", (_) -> mapType = (mapType + 1) % WorldGeneratorRegistry.getCount());
 
     Button worldCreateButton = new Button(256, 64, "menu_worldcreate_create", (_) -> {
         // Create a new save file
@@ -65,12 +66,12 @@ public class WorldCreate extends Menu {
         worldCreateGamemodeToggle.setText(gmToggleText + curGM);
 
         String mtToggleText = SettingsManager.getText("menu_worldcreate_mttoggle");
-        String curMapType = SettingsManager.getText("menu_worldcreate_" + (mapType == 1 ? "lab" : "normal"));
+        String curMapType = SettingsManager.getText("menu_worldcreate_" + WorldGeneratorRegistry.getName(mapType));
         worldCreateMapTypeToggle.setText(mtToggleText + curMapType);
 
         // Update hover text
         worldCreateGamemodeToggle.setHoverText("menu_worldcreate_" + (defaultGM == 1 ? "sandbox" : "survival") + "_hover");
-        worldCreateMapTypeToggle.setHoverText("menu_worldcreate_" + (mapType == 1 ? "lab" : "normal") + "_hover");
+        worldCreateMapTypeToggle.setHoverText("menu_worldcreate_" + WorldGeneratorRegistry.getName(mapType) + "_hover");
 
         // Return to world selection if ESC is pressed.
         if (KeyListener.checkPressed(GLFW_KEY_ESCAPE)) {
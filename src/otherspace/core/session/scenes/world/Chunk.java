@@ -3,32 +3,19 @@ package otherspace.core.session.scenes.world;
 import com.google.gson.*;
 import org.joml.Vector2d;
 import org.joml.Vector2i;
-import otherspace.core.engine.utils.IOUtils;
-import otherspace.core.engine.utils.NoiseUtils;
 import otherspace.core.engine.world.entities.Entity;
+import otherspace.core.engine.world.generation.GenerationBuffer;
+import otherspace.core.engine.world.generation.WorldGenerator;
+import otherspace.core.engine.world.tiles.AutoTiler;
 import otherspace.core.engine.world.tiles.FloorTile;
 import otherspace.core.engine.world.tiles.GroundTile;
 import otherspace.core.engine.world.tiles.Tilemap;
 import otherspace.core.engine.world.tiles.WallTile;
 import otherspace.core.registry.TileRegistry;
-import otherspace.game.entities.LooseBranch;
-import otherspace.game.entities.OakTree;
 import otherspace.game.entities.Player;
-import otherspace.game.entities.RockPile;
-import otherspace.game.tiles.GroundTiles;
-import otherspace.game.tiles.WallTiles;
-
-import java.io.File;
-import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.charset.Charset;
-import java.nio.file.Files;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
 
-import static org.lwjgl.system.MemoryUtil.memAlloc;
-import static org.lwjgl.system.MemoryUtil.memFree;
+import java.util.HashSet;
+import java.util.List;
 
 /**
  * 16x16 "Chunk" of the world, contains a set of tilemaps and local entities.
@@ -52,202 +39,141 @@ public class Chunk {
     private final Tilemap ftm;
     private final Tilemap stm;
 
+    // Loaded neighbouring chunks, indexed by (dx + 1) * 3 + (dy + 1).
+    private final Chunk[] neighbours;
+
     private CHUNK_STATE chunkState;
+    private long lastNearbyTick;
+
+    // Modification tracking, used to skip chunks that have not changed since they were last saved.
+    private boolean dirty;
+    private int savedModifications;
 
-    private Chunk(Vector2i chunkCoords) {
-        World.getChunkMap().put(chunkCoords, this);
-        this.chunkCoords = chunkCoords;
+    // Whether this chunk was generated and has never been saved, so that it can be cached again on unload instead.
+    private boolean generated;
+
+    private boolean loaded;
+
+    private Chunk(ChunkData data) {
+        this.chunkCoords = data.chunkCoords();
+        loaded = true;
+        World.getChunks().put(this);
         localEntities = new HashSet<>();
-        gtm = new Tilemap(GroundTile.getTileset(), new Vector2i(chunkCoords).mul(16), 16, 16, Chunk.GTM);
-        ftm = new Tilemap(FloorTile.getTileset(), new Vector2i(chunkCoords).mul(16), 16, 16, Chunk.FTM);
-        stm = new Tilemap(WallTile.getTileset(), new Vector2i(chunkCoords).mul(16), 16, 16, Chunk.STM);
+        gtm = new Tilemap(GroundTile.getTileset(), this, new Vector2i(chunkCoords).mul(16), 16, 16, Chunk.GTM);
+        ftm = new Tilemap(FloorTile.getTileset(), this, new Vector2i(chunkCoords).mul(16), 16, 16, Chunk.FTM);
+        stm = new Tilemap(WallTile.getTileset(), this, new Vector2i(chunkCoords).mul(16), 16, 16, Chunk.STM);
+        neighbours = new Chunk[9];
+        linkNeighbours();
         chunkState = CHUNK_STATE.BACKGROUND;
+        lastNearbyTick = World.getTicks();
 
-        // Load chunk data if it exists.
-        File chunkFile = new File(World.getSavePath(), String.format("/world/%d_%d", chunkCoords.x, chunkCoords.y));
-        if (chunkFile.exists()) {
-            ByteBuffer[] chunkData = IOUtils.loadCompressedBuffers(chunkFile);
-            JsonObject dataMapping = new Gson().fromJson(String.valueOf(Charset.defaultCharset().decode(chunkData[0])), JsonObject.class);
-
-            // Load tile data.
-            HashMap<Integer, Integer> gtmMapping = new HashMap<>();
-            HashMap<Integer, Integer> ftmMapping = new HashMap<>();
-            HashMap<Integer, Integer> stmMapping = new HashMap<>();
-
-            Map<String, JsonElement> gModSet = dataMapping.getAsJsonObject("g").asMap();
-            for (String mod : gModSet.keySet()) {
-                Map<String, JsonElement> tiles = gModSet.get(mod).getAsJsonObject().asMap();
-                for (String tile : tiles.keySet()) {
-                    String tileHandle = mod + "/" + tile;
-                    int savedID = tiles.get(tile).getAsInt();
-                    int sessionID = GroundTile.getID(tileHandle);
-                    gtmMapping.put(savedID, sessionID);
+        // Place tiles. If they already carry their autotile frames, only autotile them once everything is placed.
+        boolean autotile = !data.autotiled();
+        if (autotile) {
+            for (int x = 0; x < 16; x++) {
+                for (int y = 0; y < 16; y++) {
+                    gtm.setTile(x, y, data.ground()[x * 16 + y], true);
+                    ftm.setTile(x, y, data.floor()[x * 16 + y], true);
+                    stm.setTile(x, y, data.wall()[x * 16 + y], true);
                 }
             }
+        }
+        else {
+            gtm.fillTiles(data.ground(), false);
+            ftm.fillTiles(data.floor(), false);
+            stm.fillTiles(data.wall(), false);
+        }
 
-            Map<String, JsonElement> fModSet = dataMapping.getAsJsonObject("f").asMap();
-            for (String mod : fModSet.keySet()) {
-                Map<String, JsonElement> tiles = fModSet.get(mod).getAsJsonObject().asMap();
-                for (String tile : tiles.keySet()) {
-                    String tileHandle = mod + "/" + tile;
-                    int savedID = tiles.get(tile).getAsInt();
-                    int sessionID = FloorTile.getID(tileHandle);
-                    ftmMapping.put(savedID, sessionID);
+        // Frames inside the chunk only depend on tiles inside it, but the border ring (and the neighbouring chunks' borders)
+        // may have been saved against different neighbours, so fix those up.
+        if (!autotile) {
+            for (int x = 0; x < 16; x++) {
+                for (int y = 0; y < 16; y += (x == 0 || x == 15) ? 1 : 15) {
+                    gtm.autoTile(x, y);
+                    ftm.autoTile(x, y);
+                    stm.autoTile(x, y);
                 }
             }
+        }
+        AutoTiler.update();
 
-            Map<String, JsonElement> sModSet = dataMapping.getAsJsonObject("s").asMap();
-            for (String mod : sModSet.keySet()) {
-                Map<String, JsonElement> tiles = sModSet.get(mod).getAsJsonObject().asMap();
-                for (String tile : tiles.keySet()) {
-                    String tileHandle = mod + "/" + tile;
-                    int savedID = tiles.get(tile).getAsInt();
-                    int sessionID = WallTile.getID(tileHandle);
-                    stmMapping.put(savedID, sessionID);
-                }
-            }
+        // Spawn entities.
+        for (JsonElement e : data.entities()) {
+            Entity.deserialize(e.getAsJsonObject());
+        }
 
-            for (int x = 0; x < 16; x++) {
-                for (int y = 0; y < 16; y++) {
-                    int groundTile = chunkData[1].get(x * 16 + y);
-                    int floorTile = chunkData[2].get(x * 16 + y);
-                    int wallTile = chunkData[3].get(x * 16 + y);
+        // Chunks read from disk or freshly generated start out clean, while outdated ones still need to be written.
+        // Generated chunks are only written once they are modified, until then they can simply be generated again.
+        // Generated entities can end up in a neighbouring chunk, which then saves them, so if any did this chunk has to be
+        // saved as well, or regenerating it would spawn them a second time.
+        boolean spilled = localEntities.size() != data.entities().size();
+        dirty = data.unsaved() || data.pristine() && spilled;
+        savedModifications = getModifications();
+        generated = data.pristine() && !spilled;
+    }
 
-                    gtm.setTile(x, y, groundTile == TileRegistry.EMPTY ? TileRegistry.EMPTY : gtmMapping.get(groundTile), true);
-                    ftm.setTile(x, y, floorTile == TileRegistry.EMPTY ? TileRegistry.EMPTY : ftmMapping.get(floorTile), true);
-                    stm.setTile(x, y, wallTile == TileRegistry.EMPTY ? TileRegistry.EMPTY : stmMapping.get(wallTile), true);
-                }
-            }
+    /**
+     * Read a chunk from its save file, or generate it if it has never been saved.
+     * This does not touch the live world, so it is safe to call from a worker thread.
+     *
+     * @param chunkCoords Coordinates of chunk to prepare.
+     * @return Data for chunk.
+     */
+    static ChunkData prepareChunk(Vector2i chunkCoords) {
+        // A snapshot still waiting to be written is newer than whatever is on disk.
+        ChunkData unwritten = World.getWorldSaver().getUnwritten(chunkCoords);
+        if (unwritten != null) {
+            return unwritten;
+        }
 
-            // Load entity data.
-            JsonArray entityData = new Gson().fromJson(String.valueOf(Charset.defaultCharset().decode(chunkData[4])), JsonArray.class);
-            for (JsonElement e : entityData) {
-                JsonObject serial = e.getAsJsonObject();
-                Entity.deserialize(serial);
-            }
+        ChunkData data = readChunk(chunkCoords);
+        if (data != null) {
+            return data;
         }
-        else {
-            generateChunk();
+
+        // Chunks that were never saved were never modified, so the cached terrain is still what they looked like.
+        GeneratedChunkCache cache = World.getGeneratedChunkCache();
+        data = cache.get(chunkCoords);
+        if (data == null) {
+            data = generateChunk(chunkCoords);
+            cache.put(data);
         }
+        return data;
     }
 
     /**
-     * Generate terrain for this chunk.
-     */
-    public void generateChunk() {
-        switch (World.getMapType()) {
-            case 0: { // Default
-                for (int x = 0; x < 16; x++) {
-                    for (int y = 0; y < 16; y++) {
-                        // Noise Generation
-                        float nx = (x / 16f) + chunkCoords.x;
-                        float ny = (y / 16f) + chunkCoords.y;
-
-                        // Features
-                        float elev = NoiseUtils.perlinNoise(nx / 4, ny / 4) // Base
-                                + 0.2f * NoiseUtils.perlinNoise(nx * 2, ny * 2); // Roughness
-                        elev /= 1.2f; // Octave Correction
-
-                        // Level out spawn to ensure players don't appear in a wall.
-                        float dist = (float) Math.sqrt(Math.pow(nx, 2) + Math.pow(ny, 2));
-                        float diff = elev - 0.5f;
-                        float adj = diff / (dist + 1);
-                        elev -= adj;
-
-                        // Generate tiles
-                        int gt;
-                        int st = TileRegistry.EMPTY;
-
-                        if (elev < 0.3f) { // Deep Water
-                            gt = GroundTiles.DEEP_WATER;
-                        }
-                        else if (elev < 0.35f) { // Shallow Water
-                            gt = GroundTiles.SHALLOW_WATER;
-                        }
-                        else if (elev < 0.4f) { // Sand
-                            gt = GroundTiles.SAND;
-                        }
-                        else if (elev < 0.6f) { // Grass
-                            gt = GroundTiles.GRASS;
-                        }
-                        else if (elev < 0.65f) { // Dirt
-                            gt = GroundTiles.DIRT;
-                            st = WallTiles.DIRT;
-                        }
-                        else { // Stone
-                            // Generate Rocks
-                            float rockGen = NoiseUtils.perlinNoise(nx / 2, ny / 2);
-                            int rockVal = (int) (rockGen * 6);
-
-                            st = switch (rockVal) {
-                                case 0 -> {
-                                    gt = GroundTiles.GRANITE;
-                                    yield WallTiles.GRANITE;
-                                }
-                                case 1 -> {
-                                    gt = GroundTiles.BASALT;
-                                    yield WallTiles.BASALT;
-                                }
-                                case 2 -> {
-                                    gt = GroundTiles.LIMESTONE;
-                                    yield WallTiles.LIMESTONE;
-                                }
-                                case 3 -> {
-                                    gt = GroundTiles.SANDSTONE;
-                                    yield WallTiles.SANDSTONE;
-                                }
-                                case 4 -> {
-                                    gt = GroundTiles.MARBLE;
-                                    yield WallTiles.MARBLE;
-                                }
-                                default -> {
-                                    gt = GroundTiles.SLATE;
-                                    yield WallTiles.SLATE;
-                                }
-                            };
-                        }
-
-                        // Set tiles
-                        gtm.setTile(x, y, gt, true);
-                        ftm.setTile(x, y, TileRegistry.EMPTY, true);
-                        stm.setTile(x, y, st, true);
-
-                        // Resource Spawning
-                        boolean resourceAtLocation = false;
-                        if (gt == GroundTiles.GRASS || gt == GroundTiles.SAND) {
-                            float spawnResource = NoiseUtils.perlinNoise(nx * 50, ny * 50);
-                            if (spawnResource > 0.83f) {
-                                if (x % 2 == y % 2) {
-                                    new LooseBranch(new Vector2d(chunkCoords.x * 16 + x + 0.5f, chunkCoords.y * 16 + y + 1));
-                                }
-                                else {
-                                    new RockPile(new Vector2d(chunkCoords.x * 16 + x + 0.5f, chunkCoords.y * 16 + y + 1));
-                                }
-                                resourceAtLocation = true;
-                            }
-                        }
-
-                        // Generate Foliage
-                        if (gt == GroundTiles.GRASS && st == TileRegistry.EMPTY && !resourceAtLocation) {
-                            float foliageMap = (NoiseUtils.perlinNoise(nx, ny) + NoiseUtils.perlinNoise(nx * 25, ny * 25)) / 2;
-                            if (foliageMap > 0.76f) {
-                                new OakTree(new Vector2d(chunkCoords.x * 16 + x + 0.5f, chunkCoords.y * 16 + y + 1));
-                            }
-                        }
-                    }
-                }
-            } break;
-            case 1: { // Lab Tile
-                for (int x = 0; x < 16; x++) {
-                    for (int y = 0; y < 16; y++) {
-                        // Generate checkerboard pattern
-                        gtm.setTile(x, y, (x % 2 == y % 2) ? GroundTiles.LAB_DARK : GroundTiles.LAB_LIGHT, true);
-                        ftm.setTile(x, y, TileRegistry.EMPTY, true);
-                        stm.setTile(x, y, TileRegistry.EMPTY, true);
-                    }
-                }
-            }
-        }
+     * Read a chunk's data from its region file.
+     *
+     * @param chunkCoords Coordinates of chunk to read.
+     * @return Saved chunk data, or null if this chunk has not been saved.
+     */
+    private static ChunkData readChunk(Vector2i chunkCoords) {
+        return World.getChunkStorage().read(chunkCoords, storedData -> ChunkCodec.decode(chunkCoords, storedData));
+    }
+
+    /**
+     * Generate terrain for a chunk.
+     * This does not touch the live world, so it is safe to call from a worker thread.
+     *
+     * @param chunkCoords Coordinates of chunk to generate.
+     * @return Generated chunk data.
+     */
+    public static ChunkData generateChunk(Vector2i chunkCoords) {
+        return generateChunk(chunkCoords, World.getWorldGenerator());
+    }
+
+    /**
+     * Generate terrain for a chunk of any world, without needing that world to be open.
+     * This only depends on its arguments, so it is safe to call from any thread.
+     *
+     * @param chunkCoords Coordinates of chunk to generate.
+     * @param generator Generator of the world to generate the chunk for.
+     * @return Generated chunk data.
+     */
+    public static ChunkData generateChunk(Vector2i chunkCoords, WorldGenerator generator) {
+        GenerationBuffer buffer = new GenerationBuffer(List.of(chunkCoords));
+        generator.generate(buffer);
+        return buffer.toChunkData(0);
     }
 
     /**
@@ -265,6 +191,39 @@ public class Chunk {
         };
     }
 
+    /**
+     * Check if a tile in this chunk is blocked by a wall.
+     *
+     * @param x X coordinate of tile within chunk.
+     * @param y Y coordinate of tile within chunk.
+     * @return Whether the tile is solid.
+     */
+    public boolean isSolid(int x, int y) {
+        return stm.isFilled(x, y);
+    }
+
+    /**
+     * Get which tiles in a column of this chunk are blocked by walls.
+     *
+     * @param x X coordinate of column within chunk.
+     * @return Bitmask with bit y set if the tile at y is solid.
+     */
+    public int getSolidColumn(int x) {
+        return (int) stm.getFilledColumn(x);
+    }
+
+    /**
+     * Check if any tile in part of a row of this chunk is blocked by a wall.
+     *
+     * @param y Y coordinate of row within chunk.
+     * @param fromX X coordinate of first tile to check within chunk.
+     * @param toX X coordinate after the last tile to check within chunk.
+     * @return Whether any tile in the range is solid.
+     */
+    public boolean isRowSolid(int y, int fromX, int toX) {
+        return stm.isRowFilled(y, fromX, toX);
+    }
+
     /**
      * Get the chunk at the specified position, or null if no chunk exists.
      *
@@ -272,7 +231,18 @@ public class Chunk {
      * @return Chunk at location, or null if none was found.
      */
     public static Chunk getChunk(Vector2i chunkCoords) {
-        return World.getChunkMap().get(chunkCoords);
+        return World.getChunks().get(chunkCoords.x, chunkCoords.y);
+    }
+
+    /**
+     * Get the chunk at the specified position, or null if no chunk exists.
+     *
+     * @param chunkX X coordinate of chunk.
+     * @param chunkY Y coordinate of chunk.
+     * @return Chunk at location, or null if none was found.
+     */
+    public static Chunk getChunk(int chunkX, int chunkY) {
+        return World.getChunks().get(chunkX, chunkY);
     }
 
     /**
@@ -282,8 +252,18 @@ public class Chunk {
      * @return Chunk at position, or null if it does not exist.
      */
     public static Chunk getChunkAt(Vector2d position) {
-        Vector2i chunkCoords = new Vector2i((int) Math.floor(position.x / 16), (int) Math.floor(position.y / 16));
-        return getChunk(chunkCoords);
+        return getChunkAt(position.x, position.y);
+    }
+
+    /**
+     * Get the chunk at a given global position.
+     *
+     * @param x X coordinate in world.
+     * @param y Y coordinate in world.
+     * @return Chunk at position, or null if it does not exist.
+     */
+    public static Chunk getChunkAt(double x, double y) {
+        return getChunk((int) Math.floor(x) >> 4, (int) Math.floor(y) >> 4);
     }
 
     /**
@@ -294,7 +274,7 @@ public class Chunk {
      * @return Tile at location, or -2 if no chunk exists here.
      */
     public static int getTileAt(byte layer, Vector2d position) {
-        return getTileAt(layer, position, false);
+        return getTileAt(layer, position.x, position.y, false);
     }
 
     /**
@@ -303,17 +283,41 @@ public class Chunk {
      * @param layer Tiledata set to check.
      * @param position Coordinate point to check.
      * @param includeMask Whether to include the bitmask used for graphical effects (FOR RENDERING ONLY).
-     * @return Tile at location, or -1 if no chunk exists here.
+     * @return Tile at location, or -2 if no chunk exists here.
      */
     public static int getTileAt(byte layer, Vector2d position, boolean includeMask) {
-        Vector2i chunkCoords = new Vector2i((int) Math.floor(position.x / 16), (int) Math.floor(position.y / 16));
-        Chunk chunk = getChunk(chunkCoords);
+        return getTileAt(layer, position.x, position.y, includeMask);
+    }
+
+    /**
+     * Get the tile at a given global location, if it exists.
+     *
+     * @param layer Tiledata set to check.
+     * @param x X coordinate in world.
+     * @param y Y coordinate in world.
+     * @return Tile at location, or -2 if no chunk exists here.
+     */
+    public static int getTileAt(byte layer, double x, double y) {
+        return getTileAt(layer, x, y, false);
+    }
+
+    /**
+     * Get the tile at a given global location, if it exists.
+     *
+     * @param layer Tiledata set to check.
+     * @param x X coordinate in world.
+     * @param y Y coordinate in world.
+     * @param includeMask Whether to include the bitmask used for graphical effects (FOR RENDERING ONLY).
+     * @return Tile at location, or -2 if no chunk exists here.
+     */
+    public static int getTileAt(byte layer, double x, double y, boolean includeMask) {
+        int tileX = (int) Math.floor(x);
+        int tileY = (int) Math.floor(y);
+        Chunk chunk = getChunk(tileX >> 4, tileY >> 4);
         if (chunk != null) {
             Tilemap tiledata = chunk.getTileData(layer);
             if (tiledata != null) {
-                int tx = (int) (Math.floor(position.x) - chunkCoords.x * 16);
-                int ty = (int) (Math.floor(position.y) - chunkCoords.y * 16);
-                return includeMask ? tiledata.getTile(tx, ty) : tiledata.getAbsoluteTile(tx, ty);
+                return includeMask ? tiledata.getTile(tileX & 15, tileY & 15) : tiledata.getAbsoluteTile(tileX & 15, tileY & 15);
             }
         }
 
@@ -328,7 +332,7 @@ public class Chunk {
      * @param tile Tile to put at location.
      */
     public static void setTileAt(byte layer, Vector2d position, int tile) {
-        setTileAt(layer, position, tile, true);
+        setTileAt(layer, position.x, position.y, tile, true);
     }
 
     /**
@@ -340,156 +344,249 @@ public class Chunk {
      * @param autotile Whether to run an autotile schema (CLIENT SIDE ONLY).
      */
     public static void setTileAt(byte layer, Vector2d position, int tile, boolean autotile) {
-        Vector2i chunkCoords = new Vector2i((int) Math.floor(position.x / 16), (int) Math.floor(position.y / 16));
-        Chunk chunk = getChunk(chunkCoords);
+        setTileAt(layer, position.x, position.y, tile, autotile);
+    }
+
+    /**
+     * Set the tile at a given global location to a specified value, if it exists.
+     *
+     * @param layer Tiledata set to check.
+     * @param x X coordinate in world.
+     * @param y Y coordinate in world.
+     * @param tile Tile to put at location.
+     * @param autotile Whether to run an autotile schema (CLIENT SIDE ONLY).
+     */
+    public static void setTileAt(byte layer, double x, double y, int tile, boolean autotile) {
+        int tileX = (int) Math.floor(x);
+        int tileY = (int) Math.floor(y);
+        Chunk chunk = getChunk(tileX >> 4, tileY >> 4);
         if (chunk != null) {
-            Tilemap tiledata = chunk.getTileData(layer);
-            int tx = (int) (Math.floor(position.x) - chunkCoords.x * 16);
-            int ty = (int) (Math.floor(position.y) - chunkCoords.y * 16);
-            tiledata.setTile(tx, ty, tile, autotile);
+            chunk.getTileData(layer).setTile(tileX & 15, tileY & 15, tile, autotile);
         }
     }
 
     /**
-     * Attempt to load a chunk at the given chunk coordinates.
+     * Attempt to load a chunk at the given chunk coordinates, blocking until it is ready.
      *
      * @param chunkCoords Coordinates of chunk to load.
      * @return Loaded/Generated chunk, or null if it was not initialized (e.g. was outside of world).
      */
     public static Chunk loadChunk(Vector2i chunkCoords) {
-        if (Math.abs(chunkCoords.x * 16) > WORLD_MAX_DIST || Math.abs(chunkCoords.y * 16) > WORLD_MAX_DIST) {
+        if (!isWithinWorld(chunkCoords)) {
             return null;
         }
-        return new Chunk(chunkCoords);
+        return new Chunk(prepareChunk(chunkCoords));
+    }
+
+    /**
+     * Request a chunk to be loaded in the background. It will be added to the world once it is ready.
+     *
+     * @param chunkCoords Coordinates of chunk to load.
+     */
+    public static void requestChunk(Vector2i chunkCoords) {
+        World.getChunkLoader().request(chunkCoords);
+    }
+
+    /**
+     * Add a chunk that was prepared in the background to the world.
+     *
+     * @param data Prepared chunk data.
+     * @return Created chunk.
+     */
+    static Chunk integrateChunk(ChunkData data) {
+        return new Chunk(data);
+    }
+
+    /**
+     * Check whether a chunk lies inside the world border.
+     *
+     * @param chunkCoords Coordinates of chunk.
+     * @return Whether the chunk may exist.
+     */
+    public static boolean isWithinWorld(Vector2i chunkCoords) {
+        return Math.abs(chunkCoords.x * 16) <= WORLD_MAX_DIST && Math.abs(chunkCoords.y * 16) <= WORLD_MAX_DIST;
+    }
+
+    /**
+     * Take a copy of this chunk's tiles and serialized entities as they are right now, and mark it as saved.
+     * The snapshot is detached from the live world, so it can be written on another thread.
+     * If this chunk was generated and never changed, the snapshot matches what it was generated from and is flagged as pristine.
+     *
+     * @return Snapshot of chunk.
+     */
+    public ChunkData snapshot() {
+        // Make sure the saved frames are up to date.
+        AutoTiler.update();
+
+        int[] ground = new int[256];
+        int[] floor = new int[256];
+        int[] wall = new int[256];
+        gtm.copyTiles(ground);
+        ftm.copyTiles(floor);
+        stm.copyTiles(wall);
+
+        // Get chunk entities.
+        JsonArray entityList = new JsonArray();
+        for (Entity e : localEntities) {
+            if (!(e instanceof Player)) {
+                entityList.add(e.serialize());
+            }
+        }
+
+        // An unchanged generated chunk is identical to the data it was generated from, so it can still be cached instead.
+        boolean pristine = isPristine();
+        dirty = false;
+        savedModifications = getModifications();
+        generated = false;
+        return new ChunkData(new Vector2i(chunkCoords), ground, floor, wall, entityList, true, false, pristine);
     }
 
     /**
-     * Save the contents of a chunk to its corresponding file.
+     * Save the contents of a chunk to its region file.
      */
     public void saveChunk() {
-        // Get chunk file path.
-        File worldData = new File(World.getSavePath(), "/world/");
-        File chunkFile = new File(worldData, String.format("%d_%d", chunkCoords.x, chunkCoords.y));
-        if (!worldData.exists()) {
-            try {
-                Files.createDirectory(worldData.toPath());
-            }
-            catch (IOException e) {
-                throw new RuntimeException(e);
+        World.getChunkStorage().write(chunkCoords, ChunkCodec.encode(snapshot()));
+    }
+
+    /**
+     * Queue this chunk to be saved if it has changed, and remove it and its entities from the world.
+     * Pristine chunks are not saved at all, and will be generated again when they are next needed.
+     */
+    public void unloadChunk() {
+        if (isPristine()) {
+            World.getGeneratedChunkCache().put(snapshot());
+        }
+        else if (isDirty()) {
+            World.getWorldSaver().writeChunk(snapshot());
+        }
+        for (Entity e : localEntities) {
+            if (!(e instanceof Player)) {
+                e.unload();
             }
         }
+        World.getChunks().remove(chunkCoords.x, chunkCoords.y);
+        unlinkNeighbours();
+        loaded = false;
+    }
 
-        // Save tiledata.
-        JsonObject gtmMeta = new JsonObject();
-        JsonObject ftmMeta = new JsonObject();
-        JsonObject stmMeta = new JsonObject();
-        ByteBuffer gtmData = memAlloc(256);
-        ByteBuffer ftmData = memAlloc(256);
-        ByteBuffer stmData = memAlloc(256);
-
-        for (int x = 0; x < 16; x++) {
-            for (int y = 0; y < 16; y++) {
-                // Ground
-                GroundTile gt = GroundTile.get(gtm.getAbsoluteTile(x, y));
-                if (gt != null) {
-                    if (!gtmMeta.has(gt.getMod())) {
-                        gtmMeta.add(gt.getMod(), new JsonObject());
-                    }
-                    JsonObject gtModGroup = gtmMeta.getAsJsonObject(gt.getMod());
-                    JsonElement gtID = gtModGroup.get(gt.NAME);
-                    if (gtID != null) {
-                        gtmData.put(gtID.getAsByte());
-                    }
-                    else {
-                        byte rel = (byte) gtModGroup.size();
-                        gtModGroup.add(gt.NAME, new JsonPrimitive(rel));
-                        gtmData.put(rel);
-                    }
-                }
-                else {
-                    gtmData.put((byte) TileRegistry.EMPTY);
-                }
+    /**
+     * Check whether this chunk is still part of the world.
+     *
+     * @return Whether this chunk has not been unloaded yet.
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
 
-                // Floor
-                FloorTile ft = FloorTile.get(ftm.getAbsoluteTile(x, y));
-                if (ft != null) {
-                    if (!ftmMeta.has(ft.getMod())) {
-                        ftmMeta.add(ft.getMod(), new JsonObject());
-                    }
-                    JsonObject ftModGroup = ftmMeta.getAsJsonObject(ft.getMod());
-                    JsonElement ftID = ftModGroup.get(ft.NAME);
-                    if (ftID != null) {
-                        ftmData.put(ftID.getAsByte());
-                    }
-                    else {
-                        byte rel = (byte) ftModGroup.size();
-                        ftModGroup.add(ft.NAME, new JsonPrimitive(rel));
-                        ftmData.put(rel);
-                    }
-                }
-                else {
-                    ftmData.put((byte) TileRegistry.EMPTY);
-                }
+    /**
+     * Get a loaded chunk next to this one.
+     *
+     * @param dx X offset of neighbour, from -1 to 1.
+     * @param dy Y offset of neighbour, from -1 to 1.
+     * @return Neighbouring chunk, or null if it is not loaded.
+     */
+    public Chunk getNeighbour(int dx, int dy) {
+        return neighbours[(dx + 1) * 3 + dy + 1];
+    }
 
-                // Wall
-                WallTile st = WallTile.get(stm.getAbsoluteTile(x, y));
-                if (st != null) {
-                    if (!stmMeta.has(st.getMod())) {
-                        stmMeta.add(st.getMod(), new JsonObject());
-                    }
-                    JsonObject stModGroup = stmMeta.getAsJsonObject(st.getMod());
-                    JsonElement stID = stModGroup.get(st.NAME);
-                    if (stID != null) {
-                        stmData.put(stID.getAsByte());
-                    } else {
-                        byte rel = (byte) stModGroup.size();
-                        stModGroup.add(st.NAME, new JsonPrimitive(rel));
-                        stmData.put(rel);
-                    }
+    /**
+     * Find the loaded chunks around this one, and point them back at this chunk.
+     */
+    private void linkNeighbours() {
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -1; dy <= 1; dy++) {
+                if (dx == 0 && dy == 0) {
+                    continue;
                 }
-                else {
-                    stmData.put((byte) TileRegistry.EMPTY);
+                Chunk neighbour = getChunk(chunkCoords.x + dx, chunkCoords.y + dy);
+                neighbours[(dx + 1) * 3 + dy + 1] = neighbour;
+                if (neighbour != null) {
+                    neighbour.neighbours[(1 - dx) * 3 + 1 - dy] = this;
+                    neighbour.invalidatePadding();
                 }
             }
         }
+    }
 
-        // Get chunk entities.
-        JsonArray entityList = new JsonArray();
-        for (Entity e : localEntities) {
-            if (!(e instanceof Player)) {
-                entityList.add(e.serialize());
+    /**
+     * Remove all references between this chunk and the chunks around it.
+     */
+    private void unlinkNeighbours() {
+        for (int i = 0; i < neighbours.length; i++) {
+            Chunk neighbour = neighbours[i];
+            if (neighbour != null) {
+                neighbour.neighbours[neighbours.length - 1 - i] = null;
+                neighbour.invalidatePadding();
+                neighbours[i] = null;
             }
         }
+    }
+
+    /**
+     * Mark the cached padded tiledata of each of this chunk's tilemaps as outdated.
+     */
+    private void invalidatePadding() {
+        gtm.invalidatePadding();
+        ftm.invalidatePadding();
+        stm.invalidatePadding();
+    }
 
-        JsonObject tileMeta = new JsonObject();
-        tileMeta.add("g", gtmMeta);
-        tileMeta.add("f", ftmMeta);
-        tileMeta.add("s", stmMeta);
-
-        ByteBuffer metaBuffer = IOUtils.compressJson(tileMeta);
-        ByteBuffer gtmComp = IOUtils.compressBuffer(gtmData);
-        ByteBuffer ftmComp = IOUtils.compressBuffer(ftmData);
-        ByteBuffer stmComp = IOUtils.compressBuffer(stmData);
-        ByteBuffer entityComp = IOUtils.compressJson(entityList);
-
-        memFree(gtmData);
-        memFree(ftmData);
-        memFree(stmData);
-
-        try {
-            ByteBuffer chunkData = ByteBuffer.allocate(metaBuffer.capacity() + gtmComp.capacity() + ftmComp.capacity() + stmComp.capacity() + entityComp.capacity());
-            chunkData.put(metaBuffer);
-            chunkData.put(gtmComp);
-            chunkData.put(ftmComp);
-            chunkData.put(stmComp);
-            chunkData.put(entityComp);
-            Files.write(chunkFile.toPath(), chunkData.array());
+    /**
+     * Add an entity to this chunk's local entities.
+     *
+     * @param e Entity to add.
+     */
+    public void addEntity(Entity e) {
+        if (localEntities.add(e) && !(e instanceof Player)) {
+            dirty = true;
         }
-        catch (IOException e) {
-            throw new RuntimeException(e);
+    }
+
+    /**
+     * Remove an entity from this chunk's local entities.
+     *
+     * @param e Entity to remove.
+     */
+    public void removeEntity(Entity e) {
+        if (localEntities.remove(e) && !(e instanceof Player)) {
+            dirty = true;
         }
     }
 
+    /**
+     * Flag this chunk as needing to be saved, e.g. because the state of one of its entities changed.
+     */
+    public void markDirty() {
+        dirty = true;
+    }
+
+    /**
+     * Check whether this chunk has changed since it was last saved.
+     *
+     * @return Whether this chunk needs to be saved.
+     */
+    public boolean isDirty() {
+        return dirty || getModifications() != savedModifications;
+    }
+
+    /**
+     * Check whether this chunk is exactly as it was generated, and has never been saved.
+     *
+     * @return Whether this chunk can be regenerated instead of saved.
+     */
+    public boolean isPristine() {
+        return generated && !isDirty();
+    }
+
+    /**
+     * Get the combined modification count of this chunk's tilemaps.
+     *
+     * @return Tile modification count.
+     */
+    private int getModifications() {
+        return gtm.getModifications() + ftm.getModifications() + stm.getModifications();
+    }
+
     /**
      * Return the state of this chunk.
      *
@@ -506,5 +603,23 @@ public class Chunk {
      */
     public void setState(CHUNK_STATE chunkState) {
         this.chunkState = chunkState;
+        if (chunkState == CHUNK_STATE.NEARBY) {
+            lastNearbyTick = World.getTicks();
+        }
+        else {
+            // Only nearby chunks are drawn, so there is no point holding on to their padded tiledata.
+            gtm.releasePadding();
+            ftm.releasePadding();
+            stm.releasePadding();
+        }
+    }
+
+    /**
+     * Get the last world tick in which this chunk was near the camera.
+     *
+     * @return Tick this chunk was last nearby.
+     */
+    public long getLastNearbyTick() {
+        return lastNearbyTick;
     }
 }
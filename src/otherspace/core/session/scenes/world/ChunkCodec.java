@@ -0,0 +1,442 @@
+package otherspace.core.session.scenes.world;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.joml.Vector2i;
+import org.lwjgl.BufferUtils;
+import otherspace.core.engine.utils.IOUtils;
+import otherspace.core.engine.world.tiles.FloorTile;
+import otherspace.core.engine.world.tiles.GroundTile;
+import otherspace.core.engine.world.tiles.WallTile;
+import otherspace.core.registry.TileRegistry;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.lwjgl.util.zstd.Zstd.*;
+
+/**
+ * Converts chunk data to and from the binary form it is saved in.
+ * <p>
+ * A saved chunk starts with a four byte magic number and a format version, followed by a single zstd frame holding:
+ * <ul>
+ *     <li>A palette of every tile used in the chunk, shared by all three layers, as (layer, varint length, UTF-8 handle) entries.
+ *     Index 0 is reserved for empty tiles.</li>
+ *     <li>The number of bits used per palette index, followed by the bit-packed indices of the ground, floor and wall layers.</li>
+ *     <li>Whether autotile frames were saved, followed by a 16-bit frame per tile if they were (since version 2).</li>
+ *     <li>The chunk's serialized entities, as a varint length followed by UTF-8 JSON.</li>
+ * </ul>
+ * Chunks saved in version 1 or in the older format (a JSON palette and one zstd frame per layer) can still be decoded.
+ */
+public final class ChunkCodec {
+    private static final byte[] MAGIC = {'O', 'S', 'C', 'K'};
+    private static final byte VERSION = 2;
+    private static final int HEADER_SIZE = MAGIC.length + 1;
+    private static final int TILE_COUNT = 256 * 3;
+    private static final int FRAME_MASK = 0x7FC00000;
+    private static final int FRAME_SHIFT = 22;
+
+    // Reusable per-thread buffers, grown as needed.
+    private static final ThreadLocal<ByteBuffer> RAW_BUFFER = ThreadLocal.withInitial(() -> createBuffer(8192));
+    private static final ThreadLocal<ByteBuffer> FRAME_BUFFER = ThreadLocal.withInitial(() -> createBuffer(8192));
+    private static final ThreadLocal<int[]> INDICES = ThreadLocal.withInitial(() -> new int[TILE_COUNT]);
+
+    private ChunkCodec() {}
+
+    /**
+     * Encode chunk data into its saved form.
+     * The returned buffer is reused by every call on the current thread, so it is only valid until the next call.
+     *
+     * @param data Chunk data to encode.
+     * @return Encoded chunk.
+     */
+    public static ByteBuffer encode(ChunkData data) {
+        // Build the palette, storing each tile's palette index as we go. Chunks rarely use more than a handful of tiles,
+        // so a linear search beats hashing here.
+        int[] indices = INDICES.get();
+        byte[] paletteLayers = new byte[TILE_COUNT + 1];
+        int[] paletteIDs = new int[TILE_COUNT + 1];
+        int paletteSize = 1;
+
+        for (byte layer = Chunk.GTM; layer <= Chunk.STM; layer++) {
+            int[] tiles = data.getLayer(layer);
+            for (int i = 0; i < 256; i++) {
+                int tile = tiles[i] & ~FRAME_MASK;
+                int index = 0;
+                if (tile >= 0) {
+                    index = 1;
+                    while (index < paletteSize && (paletteLayers[index] != layer || paletteIDs[index] != tile)) {
+                        index++;
+                    }
+                    if (index == paletteSize) {
+                        paletteLayers[index] = layer;
+                        paletteIDs[index] = tile;
+                        paletteSize++;
+                    }
+                }
+                indices[layer * 256 + i] = index;
+            }
+        }
+
+        byte[] entityJson = new Gson().toJson(data.entities()).getBytes(StandardCharsets.UTF_8);
+        int bits = getIndexBits(paletteSize);
+
+        // Everything after the palette has a known size: the index width, packed indices, frame flag and frames,
+        // then the entity length (at most 5 bytes as a varint) and the entities themselves.
+        int tailSize = 1 + TILE_COUNT * bits / 8 + 1 + (data.autotiled() ? TILE_COUNT * 2 : 0) + 5 + entityJson.length;
+
+        // Palette entries are short handles, so a generous estimate per entry avoids measuring every string twice.
+        ByteBuffer raw = ensureCapacity(RAW_BUFFER, paletteSize * 64 + tailSize);
+        putVarInt(raw, paletteSize);
+        for (int i = 1; i < paletteSize; i++) {
+            byte[] handle = getHandle(paletteLayers[i], paletteIDs[i]).getBytes(StandardCharsets.UTF_8);
+            if (raw.remaining() < handle.length + 16) {
+                raw = growBuffer(RAW_BUFFER, raw, handle.length + 16);
+            }
+            raw.put(paletteLayers[i]);
+            putVarInt(raw, handle.length);
+            raw.put(handle);
+        }
+
+        // Pack tile indices.
+        if (raw.remaining() < tailSize) {
+            raw = growBuffer(RAW_BUFFER, raw, tailSize);
+        }
+        raw.put((byte) bits);
+        if (bits == 16) {
+            for (int i = 0; i < TILE_COUNT; i++) {
+                raw.putShort((short) indices[i]);
+            }
+        }
+        else {
+            int perByte = 8 / bits;
+            for (int i = 0; i < TILE_COUNT; i += perByte) {
+                int packed = 0;
+                for (int j = 0; j < perByte; j++) {
+                    packed |= indices[i + j] << (j * bits);
+                }
+                raw.put((byte) packed);
+            }
+        }
+
+        // Autotile frames
+        raw.put((byte) (data.autotiled() ? 1 : 0));
+        if (data.autotiled()) {
+            for (byte layer = Chunk.GTM; layer <= Chunk.STM; layer++) {
+                int[] tiles = data.getLayer(layer);
+                for (int i = 0; i < 256; i++) {
+                    raw.putShort((short) (tiles[i] < 0 ? 0 : (tiles[i] & FRAME_MASK) >>> FRAME_SHIFT));
+                }
+            }
+        }
+
+        // Entities
+        putVarInt(raw, entityJson.length);
+        raw.put(entityJson);
+        raw.flip();
+
+        // Compress everything into one frame after the header.
+        ByteBuffer out = ensureCapacity(FRAME_BUFFER, HEADER_SIZE + (int) ZSTD_compressBound(raw.remaining()));
+        out.put(MAGIC);
+        out.put(VERSION);
+        long frameSize = ZSTD_compress(out.slice(), raw, ZSTD_CLEVEL_DEFAULT);
+        if (ZSTD_isError(frameSize)) {
+            throw new IllegalStateException("Failed to compress chunk " + data.chunkCoords() + ": " + ZSTD_getErrorName(frameSize));
+        }
+        out.position(HEADER_SIZE + (int) frameSize);
+        return out.flip();
+    }
+
+    /**
+     * Decode a saved chunk, in either the current or the older JSON palette format.
+     *
+     * @param chunkCoords Coordinates of chunk being decoded.
+     * @param stored Saved chunk, which must be a direct buffer (e.g. a slice of a mapped file).
+     * @return Decoded chunk data, or null if a chunk in the older format is corrupt. Chunks in the older format are flagged as unsaved, so that they are migrated on the next save.
+     */
+    public static ChunkData decode(Vector2i chunkCoords, ByteBuffer stored) {
+        if (!hasMagic(stored)) {
+            return decodeLegacy(chunkCoords, stored);
+        }
+
+        byte version = stored.get(stored.position() + MAGIC.length);
+        if (version < 1 || version > VERSION) {
+            throw new IllegalStateException("Chunk " + chunkCoords + " was saved with unsupported format version " + version);
+        }
+
+        // Decompress.
+        ByteBuffer frame = stored.slice(stored.position() + HEADER_SIZE, stored.remaining() - HEADER_SIZE);
+        long rawSize = ZSTD_getFrameContentSize(frame);
+        if (rawSize < 0) {
+            throw new IllegalStateException("Chunk " + chunkCoords + " is corrupt.");
+        }
+        ByteBuffer raw = ensureCapacity(RAW_BUFFER, (int) rawSize);
+        raw.limit((int) rawSize);
+        long decompressed = ZSTD_decompress(raw, frame);
+        if (ZSTD_isError(decompressed)) {
+            throw new IllegalStateException("Failed to decompress chunk " + chunkCoords + ": " + ZSTD_getErrorName(decompressed));
+        }
+        if (decompressed != rawSize) {
+            throw new IllegalStateException("Chunk " + chunkCoords + " is corrupt.");
+        }
+
+        // Palette
+        int paletteSize = getVarInt(raw);
+        int[] paletteIDs = new int[paletteSize];
+        paletteIDs[0] = TileRegistry.EMPTY;
+        for (int i = 1; i < paletteSize; i++) {
+            byte layer = raw.get();
+            int length = getVarInt(raw);
+            String handle = StandardCharsets.UTF_8.decode(raw.slice(raw.position(), length)).toString();
+            raw.position(raw.position() + length);
+            paletteIDs[i] = switch (layer) {
+                case Chunk.GTM -> GroundTile.getID(handle);
+                case Chunk.FTM -> FloorTile.getID(handle);
+                case Chunk.STM -> WallTile.getID(handle);
+                default -> throw new IllegalStateException("Chunk " + chunkCoords + " has a tile on unknown layer " + layer);
+            };
+        }
+
+        // Unpack tiles.
+        int bits = raw.get();
+        int[][] layers = {new int[256], new int[256], new int[256]};
+        if (bits == 16) {
+            for (int i = 0; i < TILE_COUNT; i++) {
+                layers[i >> 8][i & 255] = paletteIDs[raw.getShort() & 0xFFFF];
+            }
+        }
+        else {
+            int perByte = 8 / bits;
+            int mask = (1 << bits) - 1;
+            for (int i = 0; i < TILE_COUNT; i += perByte) {
+                int packed = raw.get() & 0xFF;
+                for (int j = 0; j < perByte; j++) {
+                    int tile = i + j;
+                    layers[tile >> 8][tile & 255] = paletteIDs[(packed >> (j * bits)) & mask];
+                }
+            }
+        }
+
+        // Autotile frames
+        boolean autotiled = version >= 2 && raw.get() != 0;
+        if (autotiled) {
+            for (int i = 0; i < TILE_COUNT; i++) {
+                int frameBits = raw.getShort() & 0xFFFF;
+                int[] layer = layers[i >> 8];
+                if (layer[i & 255] >= 0) {
+                    layer[i & 255] |= frameBits << FRAME_SHIFT;
+                }
+            }
+        }
+
+        // Entities
+        int entityLength = getVarInt(raw);
+        String entityJson = StandardCharsets.UTF_8.decode(raw.slice(raw.position(), entityLength)).toString();
+        JsonArray entities = new Gson().fromJson(entityJson, JsonArray.class);
+
+        return new ChunkData(new Vector2i(chunkCoords), layers[Chunk.GTM], layers[Chunk.FTM], layers[Chunk.STM], entities, autotiled, false, false);
+    }
+
+    /**
+     * Decode a chunk saved with a JSON palette and a zstd frame per layer.
+     *
+     * @param chunkCoords Coordinates of chunk being decoded.
+     * @param stored Saved chunk.
+     * @return Decoded chunk data, or null if the saved chunk is corrupt.
+     */
+    private static ChunkData decodeLegacy(Vector2i chunkCoords, ByteBuffer stored) {
+        // These files have no checksum, so a damaged one is only noticed here. Treat it as missing, so it is generated again.
+        ByteBuffer[] chunkData = IOUtils.decompressBuffers(stored);
+        if (chunkData == null || chunkData.length < 5) {
+            return null;
+        }
+        JsonObject dataMapping = new Gson().fromJson(String.valueOf(Charset.defaultCharset().decode(chunkData[0])), JsonObject.class);
+
+        // Load tile data.
+        HashMap<Integer, Integer> gtmMapping = new HashMap<>();
+        HashMap<Integer, Integer> ftmMapping = new HashMap<>();
+        HashMap<Integer, Integer> stmMapping = new HashMap<>();
+
+        Map<String, JsonElement> gModSet = dataMapping.getAsJsonObject("g").asMap();
+        for (String mod : gModSet.keySet()) {
+            Map<String, JsonElement> tiles = gModSet.get(mod).getAsJsonObject().asMap();
+            for (String tile : tiles.keySet()) {
+                String tileHandle = mod + "/" + tile;
+                int savedID = tiles.get(tile).getAsInt();
+                int sessionID = GroundTile.getID(tileHandle);
+                gtmMapping.put(savedID, sessionID);
+            }
+        }
+
+        Map<String, JsonElement> fModSet = dataMapping.getAsJsonObject("f").asMap();
+        for (String mod : fModSet.keySet()) {
+            Map<String, JsonElement> tiles = fModSet.get(mod).getAsJsonObject().asMap();
+            for (String tile : tiles.keySet()) {
+                String tileHandle = mod + "/" + tile;
+                int savedID = tiles.get(tile).getAsInt();
+                int sessionID = FloorTile.getID(tileHandle);
+                ftmMapping.put(savedID, sessionID);
+            }
+        }
+
+        Map<String, JsonElement> sModSet = dataMapping.getAsJsonObject("s").asMap();
+        for (String mod : sModSet.keySet()) {
+            Map<String, JsonElement> tiles = sModSet.get(mod).getAsJsonObject().asMap();
+            for (String tile : tiles.keySet()) {
+                String tileHandle = mod + "/" + tile;
+                int savedID = tiles.get(tile).getAsInt();
+                int sessionID = WallTile.getID(tileHandle);
+                stmMapping.put(savedID, sessionID);
+            }
+        }
+
+        int[] ground = new int[256];
+        int[] floor = new int[256];
+        int[] wall = new int[256];
+        for (int i = 0; i < 256; i++) {
+            int groundTile = chunkData[1].get(i);
+            int floorTile = chunkData[2].get(i);
+            int wallTile = chunkData[3].get(i);
+
+            ground[i] = groundTile == TileRegistry.EMPTY ? TileRegistry.EMPTY : gtmMapping.get(groundTile);
+            floor[i] = floorTile == TileRegistry.EMPTY ? TileRegistry.EMPTY : ftmMapping.get(floorTile);
+            wall[i] = wallTile == TileRegistry.EMPTY ? TileRegistry.EMPTY : stmMapping.get(wallTile);
+        }
+
+        // Load entity data.
+        JsonArray entityData = new Gson().fromJson(String.valueOf(Charset.defaultCharset().decode(chunkData[4])), JsonArray.class);
+        return new ChunkData(new Vector2i(chunkCoords), ground, floor, wall, entityData, false, true, false);
+    }
+
+    /**
+     * Check whether saved chunk data starts with the magic number of the current format.
+     * Chunks in the older format start with the size of their first frame instead, which can never match it.
+     *
+     * @param stored Saved chunk.
+     * @return Whether the chunk uses the binary format.
+     */
+    private static boolean hasMagic(ByteBuffer stored) {
+        if (stored.remaining() < HEADER_SIZE) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (stored.get(stored.position() + i) != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the registry handle of a tile.
+     *
+     * @param layer Layer the tile is on.
+     * @param id Session ID of tile.
+     * @return Tile handle, in the form mod/name.
+     */
+    private static String getHandle(byte layer, int id) {
+        return switch (layer) {
+            case Chunk.GTM -> GroundTile.get(id).getMod() + "/" + GroundTile.get(id).NAME;
+            case Chunk.FTM -> FloorTile.get(id).getMod() + "/" + FloorTile.get(id).NAME;
+            default -> WallTile.get(id).getMod() + "/" + WallTile.get(id).NAME;
+        };
+    }
+
+    /**
+     * Get the smallest supported number of bits that can hold every index of a palette.
+     *
+     * @param paletteSize Number of palette entries.
+     * @return Bits per index (1, 2, 4, 8 or 16).
+     */
+    private static int getIndexBits(int paletteSize) {
+        if (paletteSize <= 2) {
+            return 1;
+        }
+        if (paletteSize <= 4) {
+            return 2;
+        }
+        if (paletteSize <= 16) {
+            return 4;
+        }
+        return paletteSize <= 256 ? 8 : 16;
+    }
+
+    /**
+     * Write an unsigned variable length integer, using 7 bits per byte.
+     *
+     * @param buffer Buffer to write to.
+     * @param value Value to write.
+     */
+    private static void putVarInt(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Read an unsigned variable length integer.
+     *
+     * @param buffer Buffer to read from.
+     * @return Value read.
+     */
+    private static int getVarInt(ByteBuffer buffer) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * Get a pooled buffer with at least the given capacity, cleared and ready for writing.
+     *
+     * @param pool Buffer pool.
+     * @param capacity Minimum capacity.
+     * @return Pooled buffer.
+     */
+    private static ByteBuffer ensureCapacity(ThreadLocal<ByteBuffer> pool, int capacity) {
+        ByteBuffer buffer = pool.get();
+        if (buffer.capacity() < capacity) {
+            buffer = createBuffer(Integer.highestOneBit(capacity) << 1);
+            pool.set(buffer);
+        }
+        return buffer.clear();
+    }
+
+    /**
+     * Replace a pooled buffer with a larger one, keeping what has been written so far.
+     *
+     * @param pool Buffer pool.
+     * @param buffer Buffer being written.
+     * @param extra Extra space needed.
+     * @return Larger buffer, positioned after the copied data.
+     */
+    private static ByteBuffer growBuffer(ThreadLocal<ByteBuffer> pool, ByteBuffer buffer, int extra) {
+        ByteBuffer larger = createBuffer(Integer.highestOneBit(buffer.position() + extra) << 1);
+        larger.put(buffer.flip());
+        pool.set(larger);
+        return larger;
+    }
+
+    /**
+     * Create a direct buffer that uses the byte order of the saved format, so saves can move between machines.
+     *
+     * @param capacity Buffer capacity.
+     * @return New buffer.
+     */
+    private static ByteBuffer createBuffer(int capacity) {
+        return BufferUtils.createByteBuffer(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
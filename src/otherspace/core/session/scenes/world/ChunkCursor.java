@@ -0,0 +1,112 @@
+package otherspace.core.session.scenes.world;
+
+import otherspace.core.registry.TileRegistry;
+
+/**
+ * Remembers the last chunk looked up through it, so that runs of tile queries in the same area skip the chunk map.
+ * Queries in the remembered chunk are plain array reads, moving into one of its neighbours follows the chunk's neighbour
+ * references, and only jumps further away fall back to looking the chunk up.
+ * A cursor is not thread safe, so each caller should keep its own.
+ */
+public class ChunkCursor {
+    private Chunk chunk;
+    private int chunkX;
+    private int chunkY;
+
+    /**
+     * Get the chunk at the specified position, or null if no chunk exists.
+     *
+     * @param chunkX X coordinate of chunk.
+     * @param chunkY Y coordinate of chunk.
+     * @return Chunk at location, or null if none was found.
+     */
+    public Chunk getChunk(int chunkX, int chunkY) {
+        if (chunk != null && chunk.isLoaded()) {
+            int dx = chunkX - this.chunkX;
+            int dy = chunkY - this.chunkY;
+            if (dx == 0 && dy == 0) {
+                return chunk;
+            }
+
+            // Neighbour references are kept up to date as chunks load and unload, so a missing one is not loaded.
+            if (dx >= -1 && dx <= 1 && dy >= -1 && dy <= 1) {
+                Chunk neighbour = chunk.getNeighbour(dx, dy);
+                if (neighbour != null) {
+                    moveTo(neighbour);
+                }
+                return neighbour;
+            }
+        }
+
+        Chunk found = Chunk.getChunk(chunkX, chunkY);
+        if (found != null) {
+            moveTo(found);
+        }
+        return found;
+    }
+
+    /**
+     * Get the chunk at a given global position.
+     *
+     * @param x X coordinate in world.
+     * @param y Y coordinate in world.
+     * @return Chunk at position, or null if it does not exist.
+     */
+    public Chunk getChunkAt(double x, double y) {
+        return getChunk((int) Math.floor(x) >> 4, (int) Math.floor(y) >> 4);
+    }
+
+    /**
+     * Get the tile at a given global location, if it exists.
+     *
+     * @param layer Tiledata set to check.
+     * @param x X coordinate in world.
+     * @param y Y coordinate in world.
+     * @return Tile at location, or -2 if no chunk exists here.
+     */
+    public int getTileAt(byte layer, double x, double y) {
+        return getTileAt(layer, (int) Math.floor(x), (int) Math.floor(y));
+    }
+
+    /**
+     * Get the tile at a given global tile position, if it exists.
+     *
+     * @param layer Tiledata set to check.
+     * @param tileX X coordinate of tile.
+     * @param tileY Y coordinate of tile.
+     * @return Tile at location, or -2 if no chunk exists here.
+     */
+    public int getTileAt(byte layer, int tileX, int tileY) {
+        Chunk found = getChunk(tileX >> 4, tileY >> 4);
+        return found == null ? TileRegistry.NULL : found.getTileData(layer).getAbsoluteTile(tileX & 15, tileY & 15);
+    }
+
+    /**
+     * Set the tile at a given global location to a specified value, if it exists.
+     *
+     * @param layer Tiledata set to check.
+     * @param x X coordinate in world.
+     * @param y Y coordinate in world.
+     * @param tile Tile to put at location.
+     * @param autotile Whether to run an autotile schema (CLIENT SIDE ONLY).
+     */
+    public void setTileAt(byte layer, double x, double y, int tile, boolean autotile) {
+        int tileX = (int) Math.floor(x);
+        int tileY = (int) Math.floor(y);
+        Chunk found = getChunk(tileX >> 4, tileY >> 4);
+        if (found != null) {
+            found.getTileData(layer).setTile(tileX & 15, tileY & 15, tile, autotile);
+        }
+    }
+
+    /**
+     * Remember a chunk for the next query.
+     *
+     * @param chunk Chunk to remember.
+     */
+    private void moveTo(Chunk chunk) {
+        this.chunk = chunk;
+        chunkX = chunk.chunkCoords.x;
+        chunkY = chunk.chunkCoords.y;
+    }
+}
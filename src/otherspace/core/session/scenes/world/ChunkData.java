@@ -0,0 +1,35 @@
+package otherspace.core.session.scenes.world;
+
+import com.google.gson.JsonArray;
+import org.joml.Vector2i;
+
+/**
+ * Tile and entity data for a chunk, detached from the live world so that it can be prepared off the game thread.
+ * Tile arrays hold session tile IDs and are indexed by x * 16 + y. If the data is autotiled, they also include each tile's
+ * autotile frame bits, so that only the tiles along the chunk border need to be autotiled again when the chunk is loaded.
+ *
+ * @param chunkCoords Coordinates of the chunk this data belongs to.
+ * @param ground Ground layer tiles.
+ * @param floor Floor layer tiles.
+ * @param wall Wall layer tiles.
+ * @param entities Serialized entities that live in this chunk.
+ * @param autotiled Whether tiles include their autotile frame bits.
+ * @param unsaved Whether this data differs from what is saved, e.g. because it was read from an older format.
+ * @param pristine Whether this data was freshly generated, so it never needs to be saved unless it is modified.
+ */
+public record ChunkData(Vector2i chunkCoords, int[] ground, int[] floor, int[] wall, JsonArray entities, boolean autotiled, boolean unsaved, boolean pristine) {
+    /**
+     * Get the tile array for a given layer.
+     *
+     * @param layer Layer constant.
+     * @return Tiles of that layer.
+     */
+    public int[] getLayer(byte layer) {
+        return switch (layer) {
+            case Chunk.GTM -> ground;
+            case Chunk.FTM -> floor;
+            case Chunk.STM -> wall;
+            default -> null;
+        };
+    }
+}
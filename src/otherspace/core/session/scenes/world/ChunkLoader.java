@@ -0,0 +1,135 @@
+package otherspace.core.session.scenes.world;
+
+import org.joml.Vector2i;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.function.Consumer;
+
+/**
+ * Loads and generates chunks on a pool of worker threads, then hands them back to the game thread
+ * a few at a time so that crossing a chunk border does not stall a frame.
+ * Workers only produce {@link ChunkData}, so terrain generation scales with cores, while the entities it spawns are only
+ * created once the chunk is added to the world on the game thread.
+ */
+public class ChunkLoader {
+    // Maximum time that may be spent adding finished chunks to the world each frame.
+    private static final long INTEGRATION_BUDGET = 4_000_000;
+
+    // Work-stealing pool in FIFO mode, so chunks are still picked up roughly in the order they were requested.
+    private static final ForkJoinPool WORKERS = new ForkJoinPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors() - 1),
+            pool -> {
+                ForkJoinWorkerThread worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                worker.setName("Chunk Loader " + worker.getPoolIndex());
+                return worker;
+            },
+            null,
+            true
+    );
+
+    // Separate, smaller pool for pre-generating chunks while a world is open. Tasks forked inside a pool are run ahead of
+    // tasks submitted from outside it, so sharing the main pool would leave chunks requested around the player waiting
+    // behind each pre-generation batch.
+    private static final ForkJoinPool BACKGROUND_WORKERS = new ForkJoinPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2 - 1),
+            pool -> {
+                ForkJoinWorkerThread worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                worker.setName("Chunk Pregenerator " + worker.getPoolIndex());
+                worker.setPriority(Thread.MIN_PRIORITY);
+                return worker;
+            },
+            null,
+            true
+    );
+
+    private final LinkedHashMap<Vector2i, CompletableFuture<ChunkData>> pending;
+
+    public ChunkLoader() {
+        pending = new LinkedHashMap<>();
+    }
+
+    /**
+     * Queue a chunk to be read or generated in the background, if it is not already on its way.
+     *
+     * @param chunkCoords Coordinates of chunk to load.
+     */
+    public void request(Vector2i chunkCoords) {
+        if (!pending.containsKey(chunkCoords) && Chunk.isWithinWorld(chunkCoords)) {
+            Vector2i coords = new Vector2i(chunkCoords);
+            pending.put(coords, CompletableFuture.supplyAsync(() -> Chunk.prepareChunk(coords), WORKERS));
+        }
+    }
+
+    /**
+     * Read or generate a batch of chunks in parallel, blocking until all of them are ready.
+     * The chunks are not added to the world, which is left to the caller on the game thread.
+     *
+     * @param chunks Coordinates of chunks to prepare.
+     * @return Data for each chunk, in the same order.
+     */
+    public static List<ChunkData> prepareAll(List<Vector2i> chunks) {
+        return WORKERS.submit(() -> chunks.parallelStream().map(Chunk::prepareChunk).toList()).join();
+    }
+
+    /**
+     * Run a task for every chunk in a batch in parallel, blocking until all of them are done.
+     *
+     * @param chunks Coordinates of chunks.
+     * @param task Task to run for each chunk.
+     * @param background Whether to use the smaller background pool, so that chunks being loaded into the world are not held up.
+     */
+    static void forEach(List<Vector2i> chunks, Consumer<Vector2i> task, boolean background) {
+        (background ? BACKGROUND_WORKERS : WORKERS).submit(() -> chunks.parallelStream().forEach(task)).join();
+    }
+
+    /**
+     * Add finished chunks to the world, stopping once this frame's integration budget has been used up.
+     */
+    public void update() {
+        long start = System.nanoTime();
+        Iterator<Map.Entry<Vector2i, CompletableFuture<ChunkData>>> it = pending.entrySet().iterator();
+        while (it.hasNext() && System.nanoTime() - start < INTEGRATION_BUDGET) {
+            Map.Entry<Vector2i, CompletableFuture<ChunkData>> next = it.next();
+            if (next.getValue().isDone()) {
+                it.remove();
+
+                // The chunk may have been loaded directly while we were waiting (e.g. by an entity spawning in it).
+                if (Chunk.getChunk(next.getKey()) == null) {
+                    try {
+                        Chunk.integrateChunk(next.getValue().join());
+                    }
+                    catch (CompletionException e) {
+                        throw new RuntimeException("Failed to load chunk at " + next.getKey(), e.getCause());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Check whether a chunk has been requested but has not arrived yet.
+     *
+     * @param chunkCoords Coordinates of chunk.
+     * @return Whether the chunk is still being loaded.
+     */
+    public boolean isPending(Vector2i chunkCoords) {
+        return pending.containsKey(chunkCoords);
+    }
+
+    /**
+     * Get the coordinates of every chunk that is still being loaded.
+     *
+     * @return Set of pending chunk coordinates.
+     */
+    public Set<Vector2i> getPending() {
+        return pending.keySet();
+    }
+}
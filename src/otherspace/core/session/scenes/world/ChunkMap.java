@@ -0,0 +1,269 @@
+package otherspace.core.session.scenes.world;
+
+import org.joml.Vector2i;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Map of loaded chunks, keyed by their chunk coordinates packed into a single long.
+ * Chunks are held in an open addressing table with linear probing, so looking one up never allocates anything.
+ */
+public class ChunkMap {
+    private static final int INITIAL_CAPACITY = 256;
+
+    private long[] keys;
+    private Chunk[] values;
+    private int mask;
+    private int size;
+    private int modifications;
+
+    public ChunkMap() {
+        keys = new long[INITIAL_CAPACITY];
+        values = new Chunk[INITIAL_CAPACITY];
+        mask = INITIAL_CAPACITY - 1;
+    }
+
+    /**
+     * Pack a pair of chunk coordinates into a single key.
+     *
+     * @param x X coordinate of chunk.
+     * @param y Y coordinate of chunk.
+     * @return Packed coordinates.
+     */
+    public static long pack(int x, int y) {
+        return (long) x << 32 | y & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Get the chunk at the given chunk coordinates.
+     *
+     * @param x X coordinate of chunk.
+     * @param y Y coordinate of chunk.
+     * @return Chunk, or null if it is not loaded.
+     */
+    public Chunk get(int x, int y) {
+        long key = pack(x, y);
+        for (int i = slot(key); values[i] != null; i = i + 1 & mask) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Add a chunk, replacing any chunk already loaded at its coordinates.
+     *
+     * @param chunk Chunk to add.
+     */
+    public void put(Chunk chunk) {
+        long key = pack(chunk.chunkCoords.x, chunk.chunkCoords.y);
+        int i = slot(key);
+        while (values[i] != null) {
+            if (keys[i] == key) {
+                values[i] = chunk;
+                return;
+            }
+            i = i + 1 & mask;
+        }
+
+        keys[i] = key;
+        values[i] = chunk;
+        size++;
+        modifications++;
+        if (size * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+    }
+
+    /**
+     * Remove the chunk at the given chunk coordinates.
+     *
+     * @param x X coordinate of chunk.
+     * @param y Y coordinate of chunk.
+     * @return Removed chunk, or null if it was not loaded.
+     */
+    public Chunk remove(int x, int y) {
+        long key = pack(x, y);
+        int i = slot(key);
+        while (values[i] != null && keys[i] != key) {
+            i = i + 1 & mask;
+        }
+        Chunk removed = values[i];
+        if (removed == null) {
+            return null;
+        }
+
+        // Shift later entries of the probe run back, so that lookups never stop early at the gap left behind.
+        int gap = i;
+        for (int j = gap + 1 & mask; values[j] != null; j = j + 1 & mask) {
+            int home = slot(keys[j]);
+            if ((j - home & mask) >= (j - gap & mask)) {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                gap = j;
+            }
+        }
+        values[gap] = null;
+
+        size--;
+        modifications++;
+        return removed;
+    }
+
+    /**
+     * Get the number of loaded chunks.
+     *
+     * @return Number of chunks.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get a view of every loaded chunk. The view must not be iterated while chunks are being added or removed.
+     *
+     * @return Loaded chunks.
+     */
+    public Collection<Chunk> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<Chunk> iterator() {
+                return new Iterator<>() {
+                    private final int expectedModifications = modifications;
+                    private int next = advance(0);
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < values.length;
+                    }
+
+                    @Override
+                    public Chunk next() {
+                        if (modifications != expectedModifications) {
+                            throw new ConcurrentModificationException();
+                        }
+                        if (next >= values.length) {
+                            throw new NoSuchElementException();
+                        }
+                        Chunk chunk = values[next];
+                        next = advance(next + 1);
+                        return chunk;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Get a read-only view of this map keyed by chunk coordinates, for code that still expects a regular map.
+     *
+     * @return Map view.
+     */
+    public Map<Vector2i, Chunk> asMap() {
+        return new AbstractMap<>() {
+            @Override
+            public Chunk get(Object key) {
+                return key instanceof Vector2i coords ? ChunkMap.this.get(coords.x, coords.y) : null;
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return get(key) != null;
+            }
+
+            @Override
+            public Collection<Chunk> values() {
+                return ChunkMap.this.values();
+            }
+
+            @Override
+            public Set<Entry<Vector2i, Chunk>> entrySet() {
+                return new AbstractSet<>() {
+                    @Override
+                    public Iterator<Entry<Vector2i, Chunk>> iterator() {
+                        Iterator<Chunk> chunks = ChunkMap.this.values().iterator();
+                        return new Iterator<>() {
+                            @Override
+                            public boolean hasNext() {
+                                return chunks.hasNext();
+                            }
+
+                            @Override
+                            public Entry<Vector2i, Chunk> next() {
+                                Chunk chunk = chunks.next();
+                                return new SimpleImmutableEntry<>(chunk.chunkCoords, chunk);
+                            }
+                        };
+                    }
+
+                    @Override
+                    public int size() {
+                        return size;
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Find the next occupied slot.
+     *
+     * @param from Slot to start searching from.
+     * @return Index of next occupied slot, or the table length if there are none left.
+     */
+    private int advance(int from) {
+        while (from < values.length && values[from] == null) {
+            from++;
+        }
+        return from;
+    }
+
+    /**
+     * Get the slot a key would ideally be stored in.
+     *
+     * @param key Packed chunk coordinates.
+     * @return Slot index.
+     */
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ hash >>> 32) & mask;
+    }
+
+    /**
+     * Move every chunk into a table of a different size.
+     *
+     * @param capacity New table size, which must be a power of two.
+     */
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        Chunk[] oldValues = values;
+        keys = new long[capacity];
+        values = new Chunk[capacity];
+        mask = capacity - 1;
+
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int j = slot(oldKeys[i]);
+                while (values[j] != null) {
+                    j = j + 1 & mask;
+                }
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package otherspace.core.session.scenes.world;
+
+import org.joml.Vector2i;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import static java.nio.file.StandardOpenOption.READ;
+import static otherspace.core.session.scenes.world.RegionFile.REGION_SIZE;
+
+/**
+ * Stores the chunks of a world in region files, each holding a 32x32 area of chunks.
+ * Chunks saved by older versions as individual files are still read, and are moved into their region the next time they are saved.
+ */
+public class ChunkStorage {
+    private final File worldData;
+    private final ConcurrentHashMap<Vector2i, RegionFile> regions;
+    private volatile boolean closed;
+
+    public ChunkStorage(File savePath) {
+        worldData = new File(savePath, "/world/");
+        regions = new ConcurrentHashMap<>();
+        closed = false;
+    }
+
+    /**
+     * Read the stored data of a chunk. The data is mapped straight from its file, and is only valid while the reader runs.
+     *
+     * @param chunkCoords Coordinates of chunk.
+     * @param reader Function decoding the chunk data.
+     * @return Result of reader, or null if this chunk has not been saved.
+     */
+    public <T> T read(Vector2i chunkCoords, Function<ByteBuffer, T> reader) {
+        RegionFile region = getRegion(chunkCoords, false);
+        if (region != null) {
+            T result = region.read(Math.floorMod(chunkCoords.x, REGION_SIZE), Math.floorMod(chunkCoords.y, REGION_SIZE), reader);
+            if (result != null) {
+                return result;
+            }
+        }
+
+        // Fall back to a chunk file from before region files were used.
+        File legacyFile = getLegacyFile(chunkCoords);
+        if (!legacyFile.exists()) {
+            return null;
+        }
+        try (FileChannel in = FileChannel.open(legacyFile.toPath(), READ); Arena arena = Arena.ofConfined()) {
+            MemorySegment mapping = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size(), arena);
+            return reader.apply(mapping.asByteBuffer().order(ByteOrder.nativeOrder()));
+        }
+        catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Store the data of a chunk in its region file.
+     *
+     * @param chunkCoords Coordinates of chunk.
+     * @param data Chunk data.
+     */
+    public void write(Vector2i chunkCoords, ByteBuffer data) {
+        RegionFile region = getRegion(chunkCoords, true);
+        if (region == null) {
+            throw new IllegalStateException("Attempted to save chunk " + chunkCoords + " after its world was closed.");
+        }
+        region.write(Math.floorMod(chunkCoords.x, REGION_SIZE), Math.floorMod(chunkCoords.y, REGION_SIZE), data);
+
+        // Now that the chunk is in its region, any older copy of it can go.
+        try {
+            Files.deleteIfExists(getLegacyFile(chunkCoords).toPath());
+        }
+        catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Store the data of a chunk only if it has never been saved, e.g. for pre-generated terrain that must not replace
+     * a chunk the player has changed.
+     *
+     * @param chunkCoords Coordinates of chunk.
+     * @param data Chunk data.
+     * @return Whether the data was written.
+     */
+    public boolean writeIfAbsent(Vector2i chunkCoords, ByteBuffer data) {
+        // Legacy files are never created anymore, so checking for one first cannot race with another writer.
+        if (getLegacyFile(chunkCoords).exists()) {
+            return false;
+        }
+        RegionFile region = getRegion(chunkCoords, true);
+        if (region == null) {
+            throw new IllegalStateException("Attempted to save chunk " + chunkCoords + " after its world was closed.");
+        }
+        return region.writeIfAbsent(Math.floorMod(chunkCoords.x, REGION_SIZE), Math.floorMod(chunkCoords.y, REGION_SIZE), data);
+    }
+
+    /**
+     * Check whether a chunk has been saved.
+     *
+     * @param chunkCoords Coordinates of chunk.
+     * @return Whether the chunk is in storage.
+     */
+    public boolean contains(Vector2i chunkCoords) {
+        RegionFile region = getRegion(chunkCoords, false);
+        if (region != null && region.contains(Math.floorMod(chunkCoords.x, REGION_SIZE), Math.floorMod(chunkCoords.y, REGION_SIZE))) {
+            return true;
+        }
+        return getLegacyFile(chunkCoords).exists();
+    }
+
+    /**
+     * Force everything written to the open region files so far onto the disk.
+     */
+    public void sync() {
+        for (RegionFile region : regions.values()) {
+            region.sync();
+        }
+    }
+
+    /**
+     * Compact region files that have built up too much free space, then close all of them.
+     */
+    public void close() {
+        closed = true;
+        for (RegionFile region : regions.values()) {
+            if (region.getFreeSectors() > region.getUsedSectors() / 4) {
+                region.compact();
+            }
+            region.close();
+        }
+        regions.clear();
+    }
+
+    /**
+     * Get the region file holding a chunk, opening it if needed.
+     *
+     * @param chunkCoords Coordinates of chunk.
+     * @param create Whether to create the region file if it does not exist yet.
+     * @return Region file, or null if it does not exist and was not created.
+     */
+    private RegionFile getRegion(Vector2i chunkCoords, boolean create) {
+        if (closed) {
+            return null;
+        }
+
+        Vector2i regionCoords = new Vector2i(Math.floorDiv(chunkCoords.x, REGION_SIZE), Math.floorDiv(chunkCoords.y, REGION_SIZE));
+        RegionFile region = regions.get(regionCoords);
+        if (region != null) {
+            return region;
+        }
+
+        File regionFile = new File(worldData, String.format("%d_%d.region", regionCoords.x, regionCoords.y));
+        if (!create && !regionFile.exists()) {
+            return null;
+        }
+        if (!worldData.exists()) {
+            try {
+                Files.createDirectories(worldData.toPath());
+            }
+            catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        return regions.computeIfAbsent(regionCoords, _ -> new RegionFile(regionFile));
+    }
+
+    /**
+     * Get the file a chunk would have been saved to before region files were used.
+     *
+     * @param chunkCoords Coordinates of chunk.
+     * @return Legacy chunk file.
+     */
+    private File getLegacyFile(Vector2i chunkCoords) {
+        return new File(worldData, String.format("%d_%d", chunkCoords.x, chunkCoords.y));
+    }
+}
@@ -1,6 +1,7 @@
 package otherspace.core.session.scenes.world;
 
 import org.joml.Vector2d;
+import org.joml.Vector2i;
 import otherspace.core.engine.world.items.Inventory;
 import otherspace.core.engine.world.items.Item;
 import otherspace.core.engine.world.items.ItemStack;
@@ -9,6 +10,7 @@ import otherspace.game.entities.Player;
 
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.function.Function;
 
 /**
@@ -33,6 +35,10 @@ public class ConsoleCommand {
                 damage <amount>: Damage self by a specified amount.
                 kill: Kill self.
                 clear: Clear own inventory.
+                pregen <radius>: Generate and save all chunks within a radius (in chunks) of self.
+                pregen <x1> <y1> <x2> <y2>: Generate and save all chunks in a rectangle of chunk coordinates.
+                pregen: Show pre-generation progress.
+                pregen stop: Stop pre-generation.
                 """
         ));
 
@@ -222,6 +228,41 @@ public class ConsoleCommand {
             }
             return "Cleared own inventory.";
         }));
+
+        // Pregen
+        list.put("pregen", new ConsoleCommand((args) -> {
+            WorldPregenerator current = World.getPregenerator();
+            if (args.length == 0) {
+                return current == null ? "Nothing is being pre-generated." : current.getProgress();
+            }
+            if (args[0].equals("stop")) {
+                if (current == null || current.isDone()) {
+                    return "Nothing is being pre-generated.";
+                }
+                current.cancel();
+                return "Stopping pre-generation, chunks generated so far will be kept.";
+            }
+
+            List<Vector2i> area;
+            try {
+                if (args.length >= 4) {
+                    area = WorldPregenerator.getRectangle(Integer.parseInt(args[0]), Integer.parseInt(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+                }
+                else {
+                    int radius = Math.max(Integer.parseInt(args[0]), 0);
+                    Vector2d position = Player.getOwnPlayer().position;
+                    area = WorldPregenerator.getCircle((int) Math.floor(position.x / 16), (int) Math.floor(position.y / 16), radius);
+                }
+            }
+            catch (NumberFormatException e) {
+                return "Invalid area.";
+            }
+
+            if (!World.startPregeneration(area)) {
+                return "Already pre-generating, use \"pregen stop\" to stop.";
+            }
+            return "Pre-generating " + area.size() + " chunks in the background, use \"pregen\" to check progress.";
+        }));
     }
 
     /**
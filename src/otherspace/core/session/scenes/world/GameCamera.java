@@ -4,17 +4,26 @@ import org.joml.Vector2d;
 import org.joml.Vector2i;
 import otherspace.core.engine.Camera;
 import otherspace.core.engine.Scene;
+import otherspace.core.session.SettingsManager;
 import otherspace.game.entities.Player;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+
 import static otherspace.core.session.scenes.world.Chunk.CHUNK_STATE;
 
 /**
  * Camera that follows player throughout game and handles location-specific events.
  */
 public class GameCamera extends Camera {
-    private static final int LOAD_RADIUS = 5;
+    public static final int LOAD_RADIUS = 5;
     private static final int LOAD_DIAMETER = LOAD_RADIUS * 2 + 1;
 
+    // Chunk eviction timings, in world ticks.
+    private static final int SWEEP_INTERVAL = 30;
+    private static final int INACTIVE_DELAY = 600;
+    private static final int UNLOAD_DELAY = 1800;
+
     public GameCamera(Scene myScene) {
         super(myScene);
     }
@@ -40,9 +49,9 @@ public class GameCamera extends Camera {
                 Vector2i chunkCoords = new Vector2i(xOffset, yOffset);
                 Chunk localChunk = Chunk.getChunk(chunkCoords);
 
-                // If there is not a chunk here, load the chunk.
+                // If there is not a chunk here, request it from the chunk loader.
                 if (localChunk == null) {
-                    Chunk.loadChunk(chunkCoords);
+                    Chunk.requestChunk(chunkCoords);
                 }
 
                 if (localChunk != null) {
@@ -50,5 +59,71 @@ public class GameCamera extends Camera {
                 }
             }
         }
+
+        // Add any chunks that finished loading in the background.
+        World.getChunkLoader().update();
+
+        if (World.getTicks() % SWEEP_INTERVAL == 0) {
+            evictChunks(cX, cY);
+        }
+    }
+
+    /**
+     * Demote chunks that have fallen out of range, and unload those that have been inactive for too long
+     * or exceed the resident chunk budget.
+     *
+     * @param cX X coordinate of the chunk the camera is in.
+     * @param cY Y coordinate of the chunk the camera is in.
+     */
+    private void evictChunks(int cX, int cY) {
+        long now = World.getTicks();
+        int backgroundRadius = LOAD_RADIUS + getLoadMargin();
+        ArrayList<Chunk> candidates = new ArrayList<>();
+
+        for (Chunk c : World.getChunks().values()) {
+            int dist = Math.max(Math.abs(c.chunkCoords.x - cX), Math.abs(c.chunkCoords.y - cY));
+            long idle = now - c.getLastNearbyTick();
+
+            if (dist > LOAD_RADIUS) {
+                // Demote chunks by distance first, then by how long they have gone unseen.
+                if (c.getState() == CHUNK_STATE.NEARBY) {
+                    c.setState(CHUNK_STATE.BACKGROUND);
+                }
+                if (c.getState() == CHUNK_STATE.BACKGROUND && (dist > backgroundRadius || idle > INACTIVE_DELAY)) {
+                    c.setState(CHUNK_STATE.INACTIVE);
+                }
+                candidates.add(c);
+            }
+        }
+
+        // Unload chunks that have been idle for too long, then the least recently seen ones until we fit the budget.
+        candidates.sort(Comparator.comparingLong(Chunk::getLastNearbyTick)
+                .thenComparingInt(c -> -Math.max(Math.abs(c.chunkCoords.x - cX), Math.abs(c.chunkCoords.y - cY))));
+        int excess = World.getChunks().size() - getMaxLoadedChunks();
+        for (Chunk c : candidates) {
+            boolean expired = c.getState() == CHUNK_STATE.INACTIVE && now - c.getLastNearbyTick() > UNLOAD_DELAY;
+            if (expired || excess > 0) {
+                c.unloadChunk();
+                excess--;
+            }
+        }
+    }
+
+    /**
+     * Get how many chunks past the load radius should be loaded in advance when opening a world.
+     *
+     * @return Extra chunk load margin.
+     */
+    public static int getLoadMargin() {
+        return Math.max(0, SettingsManager.get("chunk_load_margin").getAsInt());
+    }
+
+    /**
+     * Get the maximum number of chunks that may stay loaded before the least recently seen ones are unloaded.
+     *
+     * @return Resident chunk budget (never less than the chunks within the load radius).
+     */
+    public static int getMaxLoadedChunks() {
+        return Math.max(LOAD_DIAMETER * LOAD_DIAMETER, SettingsManager.get("max_loaded_chunks").getAsInt());
     }
 }
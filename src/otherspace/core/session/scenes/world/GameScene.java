@@ -146,7 +146,9 @@ public class GameScene extends Scene {
      * Exit the game and return to the main title screen.
      */
     public static void exitGame() {
+        World.stopPregeneration();
         SaveUtils.saveGame(World.getSavePath());
+        World.getChunkStorage().close();
         SceneManager.changeScene(new MainMenu());
         SoundManager.stopAllAudio();
     }
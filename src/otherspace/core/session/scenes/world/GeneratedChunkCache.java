@@ -0,0 +1,45 @@
+package otherspace.core.session.scenes.world;
+
+import org.joml.Vector2i;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the data of recently generated chunks that have not been modified, so that walking back and forth over the edge
+ * of explored space does not regenerate the same terrain over and over.
+ * Each world has its own cache, so entries are implicitly tied to that world's seed.
+ */
+public class GeneratedChunkCache {
+    private static final int CAPACITY = 256;
+
+    private final LinkedHashMap<Vector2i, ChunkData> chunks;
+
+    public GeneratedChunkCache() {
+        chunks = new LinkedHashMap<>(CAPACITY, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Vector2i, ChunkData> eldest) {
+                return size() > CAPACITY;
+            }
+        };
+    }
+
+    /**
+     * Get the generated data of a chunk, if it is still cached.
+     *
+     * @param chunkCoords Coordinates of chunk.
+     * @return Generated chunk data, or null if it is not cached.
+     */
+    public synchronized ChunkData get(Vector2i chunkCoords) {
+        return chunks.get(chunkCoords);
+    }
+
+    /**
+     * Cache the generated data of a chunk, evicting the least recently used chunk if the cache is full.
+     *
+     * @param data Generated chunk data, which must not be modified afterwards.
+     */
+    public synchronized void put(ChunkData data) {
+        chunks.put(data.chunkCoords(), data);
+    }
+}
@@ -28,7 +28,7 @@ import otherspace.core.session.window.MouseListener;
 import otherspace.game.entities.DroppedItem;
 import otherspace.game.entities.Player;
 
-import java.util.HashSet;
+import java.util.ArrayList;
 import java.util.LinkedList;
 
 import static org.lwjgl.glfw.GLFW.*;
@@ -51,6 +51,9 @@ public class InputHandler {
     private int currentMouseSlot;
     private int lastMouseSlot;
 
+    // Reused by the sweep input, so that picking up nearby items does not allocate a new collection each frame.
+    private final ArrayList<DroppedItem> nearbyItems = new ArrayList<>();
+
     public InputHandler() {
         singleton = this;
         playerControl = true;
@@ -240,6 +243,7 @@ public class InputHandler {
                     toPickup.getMyItem().stackSize = Player.getHeldInventory().add(toPickup.getMyItem(), null, true);
                 }
                 toPickup.getMyItem().stackSize = Player.getPlayerInventory().add(toPickup.getMyItem(), null, true);
+                toPickup.markDirty();
             }
         }
 
@@ -247,14 +251,16 @@ public class InputHandler {
         if (KeyListener.checkHeld(SettingsManager.getKeybind("sweep_bind")) && playerControl) {
             Vector2d playerPos = Player.getOwnPlayer().position;
             Rectangled nearby = new Rectangled(playerPos.x - 2, playerPos.y - 2, playerPos.x + 2, playerPos.y + 2);
-            HashSet<DroppedItem> nearbyItems = CollisionUtils.collisionRectList(CollisionUtils.getNearbyEntities(playerPos), DroppedItem.class, nearby);
+            CollisionUtils.collisionRectList(DroppedItem.class, nearby, nearbyItems);
             for (DroppedItem d : nearbyItems) {
                 // Try to transfer item to the held slot first, then the player inventory.
                 if (!Player.getHeldItem().isEmpty() && d.getMyItem().equals(Player.getHeldItem())) {
                     d.getMyItem().stackSize = Player.getHeldInventory().add(d.getMyItem(), null, true);
                 }
                 d.getMyItem().stackSize = Player.getPlayerInventory().add(d.getMyItem(), null, true);
+                d.markDirty();
             }
+            nearbyItems.clear();
         }
     }
 
@@ -0,0 +1,477 @@
+package otherspace.core.session.scenes.world;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.zip.CRC32C;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * A file packing a 32x32 area of chunks together, so that a world is not stored as thousands of tiny files.
+ * The file starts with a header holding, for each chunk, the sector its data starts at, the length of that data and its CRC32C
+ * checksum, which is checked whenever the chunk is read.
+ * Chunk data is stored in 4KB sectors, and is rewritten in place whenever it still fits in the sectors it already owns.
+ * Reads go through a memory mapping of the file, so chunk data is handed to the decoder without being copied.
+ */
+public class RegionFile {
+    public static final int REGION_SIZE = 32;
+    private static final int SECTOR_SIZE = 4096;
+    private static final int ENTRY_SIZE = Integer.BYTES * 3;
+    private static final int HEADER_SECTORS = REGION_SIZE * REGION_SIZE * ENTRY_SIZE / SECTOR_SIZE;
+    private static final ThreadLocal<byte[]> CHECKSUM_SCRATCH = ThreadLocal.withInitial(() -> new byte[SECTOR_SIZE]);
+
+    private final FileChannel channel;
+    private final int[] offsets;
+    private final int[] lengths;
+    private final int[] checksums;
+    private final BitSet usedSectors;
+    private final ReentrantReadWriteLock lock;
+
+    // The mapping is replaced whenever the file grows past it, and is unmapped as soon as it is replaced.
+    private Arena mappingArena;
+    private MemorySegment mapping;
+
+    public RegionFile(File file) {
+        lock = new ReentrantReadWriteLock();
+        offsets = new int[REGION_SIZE * REGION_SIZE];
+        lengths = new int[REGION_SIZE * REGION_SIZE];
+        checksums = new int[REGION_SIZE * REGION_SIZE];
+        usedSectors = new BitSet();
+        usedSectors.set(0, HEADER_SECTORS);
+
+        try {
+            channel = FileChannel.open(file.toPath(), READ, WRITE, CREATE);
+
+            if (channel.size() < (long) HEADER_SECTORS * SECTOR_SIZE) {
+                // New region, write an empty header.
+                writeFully(ByteBuffer.allocate(HEADER_SECTORS * SECTOR_SIZE), 0);
+            }
+            else {
+                // Read the offset table and mark which sectors are in use.
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SECTORS * SECTOR_SIZE);
+                readFully(header, 0);
+                header.flip();
+                for (int i = 0; i < offsets.length; i++) {
+                    offsets[i] = header.getInt();
+                    lengths[i] = header.getInt();
+                    checksums[i] = header.getInt();
+                    if (offsets[i] != 0) {
+                        usedSectors.set(offsets[i], offsets[i] + sectorsFor(lengths[i]));
+                    }
+                }
+            }
+        }
+        catch (IOException e) {
+            throw new RuntimeException("Failed to open region file " + file, e);
+        }
+    }
+
+    /**
+     * Read the stored data of a chunk in this region.
+     * The data is a view of the file mapping, so it is only valid while the reader runs. Several chunks may be read at once,
+     * but writes wait until every reader is done.
+     *
+     * @param localX X coordinate of chunk within region.
+     * @param localY Y coordinate of chunk within region.
+     * @param reader Function decoding the chunk data.
+     * @return Result of reader, or null if this chunk has not been stored or its data is corrupt.
+     */
+    public <T> T read(int localX, int localY, Function<ByteBuffer, T> reader) {
+        int index = getIndex(localX, localY);
+        lock.readLock().lock();
+        try {
+            while (true) {
+                if (offsets[index] == 0) {
+                    return null;
+                }
+
+                long start = (long) offsets[index] * SECTOR_SIZE;
+                if (isMapped(start + lengths[index])) {
+                    ByteBuffer data = mapping.asSlice(start, lengths[index]).asByteBuffer().order(ByteOrder.nativeOrder());
+                    if (getChecksum(data) != checksums[index]) {
+                        System.err.println("Chunk " + localX + ", " + localY + " of region file is corrupt and will be regenerated.");
+                        return null;
+                    }
+                    return reader.apply(data);
+                }
+
+                // The file has grown since it was last mapped, swap in a larger mapping and try again.
+                lock.readLock().unlock();
+                lock.writeLock().lock();
+                try {
+                    if (!isMapped((long) offsets[index] * SECTOR_SIZE + lengths[index])) {
+                        remap();
+                    }
+                }
+                finally {
+                    lock.readLock().lock();
+                    lock.writeLock().unlock();
+                }
+            }
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Store the data of a chunk in this region, replacing anything previously stored for it.
+     *
+     * @param localX X coordinate of chunk within region.
+     * @param localY Y coordinate of chunk within region.
+     * @param data Chunk data.
+     */
+    public void write(int localX, int localY, ByteBuffer data) {
+        lock.writeLock().lock();
+        try {
+            writeChunk(getIndex(localX, localY), data);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Store the data of a chunk in this region, unless something is already stored for it.
+     * The check and the write happen under the same lock, so this never replaces a chunk saved by another thread.
+     *
+     * @param localX X coordinate of chunk within region.
+     * @param localY Y coordinate of chunk within region.
+     * @param data Chunk data.
+     * @return Whether the data was written.
+     */
+    public boolean writeIfAbsent(int localX, int localY, ByteBuffer data) {
+        int index = getIndex(localX, localY);
+        lock.writeLock().lock();
+        try {
+            if (offsets[index] != 0) {
+                return false;
+            }
+            writeChunk(index, data);
+            return true;
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Check whether anything is stored for a chunk in this region.
+     *
+     * @param localX X coordinate of chunk within region.
+     * @param localY Y coordinate of chunk within region.
+     * @return Whether the chunk has been stored.
+     */
+    public boolean contains(int localX, int localY) {
+        lock.readLock().lock();
+        try {
+            return offsets[getIndex(localX, localY)] != 0;
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Store the data of a chunk, must be called while holding the write lock.
+     *
+     * @param index Chunk index.
+     * @param data Chunk data.
+     */
+    private void writeChunk(int index, ByteBuffer data) {
+        int length = data.remaining();
+        int sectors = sectorsFor(length);
+        int oldOffset = offsets[index];
+        int oldSectors = sectorsFor(lengths[index]);
+
+        // Reuse the chunk's current sectors if it still fits, otherwise move it to the first free run that is big enough.
+        int offset;
+        if (oldOffset != 0 && sectors <= oldSectors) {
+            offset = oldOffset;
+            usedSectors.clear(oldOffset + sectors, oldOffset + oldSectors);
+        }
+        else {
+            if (oldOffset != 0) {
+                usedSectors.clear(oldOffset, oldOffset + oldSectors);
+            }
+            offset = allocate(sectors);
+        }
+
+        try {
+            int checksum = getChecksum(data);
+            writeFully(data, (long) offset * SECTOR_SIZE);
+            usedSectors.set(offset, offset + sectors);
+            offsets[index] = offset;
+            lengths[index] = length;
+            checksums[index] = checksum;
+            writeEntry(index);
+        }
+        catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Move every chunk down to fill the gaps left by chunks that grew and were relocated, then trim the file.
+     */
+    public void compact() {
+        lock.writeLock().lock();
+        try {
+            compactChunks();
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Move every chunk down to fill gaps, must be called while holding the write lock.
+     */
+    private void compactChunks() {
+        // Unmap first, since some systems refuse to truncate a mapped file.
+        unmap();
+
+        ArrayList<Integer> stored = new ArrayList<>();
+        for (int i = 0; i < offsets.length; i++) {
+            if (offsets[i] != 0) {
+                stored.add(i);
+            }
+        }
+        stored.sort(Comparator.comparingInt(i -> offsets[i]));
+
+        try {
+            int next = HEADER_SECTORS;
+            for (int index : stored) {
+                int sectors = sectorsFor(lengths[index]);
+                if (offsets[index] != next) {
+                    // Chunks only ever move towards the start of the file, so reading the whole chunk first is enough to avoid clobbering it.
+                    ByteBuffer data = ByteBuffer.allocate(lengths[index]);
+                    readFully(data, (long) offsets[index] * SECTOR_SIZE);
+                    data.flip();
+                    writeFully(data, (long) next * SECTOR_SIZE);
+                    offsets[index] = next;
+                    writeEntry(index);
+                }
+                next += sectors;
+            }
+
+            usedSectors.clear();
+            usedSectors.set(0, next);
+            channel.truncate((long) next * SECTOR_SIZE);
+        }
+        catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Get how many sectors in this file are not used by any chunk.
+     *
+     * @return Number of free sectors before the end of the file.
+     */
+    public int getFreeSectors() {
+        lock.readLock().lock();
+        try {
+            return usedSectors.length() - usedSectors.cardinality();
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get how many sectors in this file are used by the header or by chunks.
+     *
+     * @return Number of used sectors.
+     */
+    public int getUsedSectors() {
+        lock.readLock().lock();
+        try {
+            return usedSectors.cardinality();
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Force everything written to this region so far onto the disk.
+     */
+    public void sync() {
+        try {
+            channel.force(true);
+        }
+        catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Close this region file.
+     */
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            unmap();
+            channel.close();
+        }
+        catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Map the whole file, replacing the previous mapping. Must be called while holding the write lock.
+     */
+    private void remap() {
+        unmap();
+        try {
+            mappingArena = Arena.ofShared();
+            mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), mappingArena);
+        }
+        catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Check whether the current mapping reaches a given point in the file.
+     *
+     * @param end File position that must be mapped.
+     * @return Whether the mapping covers everything before this position.
+     */
+    private boolean isMapped(long end) {
+        return mapping != null && end <= mapping.byteSize();
+    }
+
+    /**
+     * Release the current mapping, if there is one. Must be called while holding the write lock.
+     */
+    private void unmap() {
+        if (mappingArena != null) {
+            mappingArena.close();
+            mappingArena = null;
+            mapping = null;
+        }
+    }
+
+    /**
+     * Find the first run of free sectors large enough to hold some data.
+     *
+     * @param sectors Number of sectors needed.
+     * @return First sector of run.
+     */
+    private int allocate(int sectors) {
+        int start = usedSectors.nextClearBit(HEADER_SECTORS);
+        while (true) {
+            int end = usedSectors.nextSetBit(start);
+            if (end == -1 || end - start >= sectors) {
+                return start;
+            }
+            start = usedSectors.nextClearBit(end);
+        }
+    }
+
+    /**
+     * Write the header entry of a chunk to disk.
+     *
+     * @param index Chunk index.
+     * @throws IOException If the entry could not be written.
+     */
+    private void writeEntry(int index) throws IOException {
+        ByteBuffer entry = ByteBuffer.allocate(ENTRY_SIZE);
+        entry.putInt(offsets[index]);
+        entry.putInt(lengths[index]);
+        entry.putInt(checksums[index]);
+        entry.flip();
+        writeFully(entry, (long) index * ENTRY_SIZE);
+    }
+
+    /**
+     * Fill a buffer with data read from a position in the file.
+     *
+     * @param buffer Buffer to fill.
+     * @param position File position to read from.
+     * @throws IOException If the file ends before the buffer is full.
+     */
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read == -1) {
+                throw new IOException("Unexpected end of region file");
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Write the remaining contents of a buffer to a position in the file.
+     *
+     * @param buffer Buffer to write.
+     * @param position File position to write to.
+     * @throws IOException If the data could not be written.
+     */
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * Get the CRC32C checksum of some data, without moving the buffer's position.
+     *
+     * @param data Data to check.
+     * @return Checksum.
+     */
+    private static int getChecksum(ByteBuffer data) {
+        CRC32C crc = new CRC32C();
+        if (data.hasArray()) {
+            crc.update(data.duplicate());
+            return (int) crc.getValue();
+        }
+
+        // CRC32C cannot read buffers backed by a shared arena directly, so feed mapped data through a small scratch array.
+        byte[] scratch = CHECKSUM_SCRATCH.get();
+        ByteBuffer remaining = data.duplicate();
+        while (remaining.hasRemaining()) {
+            int length = Math.min(scratch.length, remaining.remaining());
+            remaining.get(scratch, 0, length);
+            crc.update(scratch, 0, length);
+        }
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Get the header index of a chunk.
+     *
+     * @param localX X coordinate of chunk within region.
+     * @param localY Y coordinate of chunk within region.
+     * @return Chunk index.
+     */
+    private static int getIndex(int localX, int localY) {
+        return localX * REGION_SIZE + localY;
+    }
+
+    /**
+     * Get how many sectors are needed to hold some data.
+     *
+     * @param length Length of data, in bytes.
+     * @return Number of sectors.
+     */
+    private static int sectorsFor(int length) {
+        return Math.ceilDiv(length, SECTOR_SIZE);
+    }
+}
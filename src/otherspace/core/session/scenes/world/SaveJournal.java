@@ -0,0 +1,213 @@
+package otherspace.core.session.scenes.world;
+
+import org.joml.Vector2i;
+import otherspace.core.engine.utils.IOUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * Write-ahead journal that makes a save all-or-nothing.
+ * Everything in a save is first written to a single journal file and forced onto the disk. Only then are the region and JSON
+ * files updated, so if the game dies partway through, the journal is replayed the next time the world is opened.
+ * This also means the individual writes do not each need to be forced onto the disk, just the files touched once at the end.
+ * <p>
+ * The journal holds a magic number and entry count, followed by each entry (a type byte, the chunk coordinates or file path,
+ * and the length and contents of the data), and ends with a CRC32C checksum of everything before it.
+ */
+public class SaveJournal {
+    private static final int MAGIC = 0x4F534A4C; // "OSJL"
+    private static final byte CHUNK_ENTRY = 0;
+    private static final byte FILE_ENTRY = 1;
+    private static final String JOURNAL_NAME = "save.journal";
+
+    private final File savePath;
+    private final LinkedHashMap<Vector2i, byte[]> chunks;
+    private final LinkedHashMap<String, byte[]> files;
+
+    public SaveJournal(File savePath) {
+        this.savePath = savePath;
+        chunks = new LinkedHashMap<>();
+        files = new LinkedHashMap<>();
+    }
+
+    /**
+     * Add an encoded chunk to this save.
+     *
+     * @param chunkCoords Coordinates of chunk.
+     * @param data Encoded chunk, which is copied.
+     */
+    public void addChunk(Vector2i chunkCoords, ByteBuffer data) {
+        byte[] copy = new byte[data.remaining()];
+        data.duplicate().get(copy);
+        chunks.put(new Vector2i(chunkCoords), copy);
+    }
+
+    /**
+     * Add a file to this save.
+     *
+     * @param fileName Path of file, relative to the save directory.
+     * @param contents Contents of file.
+     */
+    public void addFile(String fileName, byte[] contents) {
+        files.put(fileName, contents);
+    }
+
+    /**
+     * Write this journal to disk, apply it to the save, and then remove it.
+     *
+     * @param storage Storage to write chunks to.
+     */
+    public void commit(ChunkStorage storage) {
+        if (chunks.isEmpty() && files.isEmpty()) {
+            return;
+        }
+
+        try {
+            IOUtils.writeAtomic(getJournalPath(savePath), serialize(), true);
+            apply(storage);
+            Files.deleteIfExists(getJournalPath(savePath));
+        }
+        catch (IOException e) {
+            throw new RuntimeException("Failed to commit save journal", e);
+        }
+    }
+
+    /**
+     * Replay a journal left behind by a save that was interrupted. A journal that was not completely written is discarded,
+     * since none of its changes will have been applied yet.
+     *
+     * @param savePath Save file to recover.
+     * @param storage Storage to write chunks to.
+     */
+    public static void recover(File savePath, ChunkStorage storage) {
+        Path journalPath = getJournalPath(savePath);
+        try {
+            Files.deleteIfExists(journalPath.resolveSibling(JOURNAL_NAME + ".tmp"));
+            if (!Files.exists(journalPath)) {
+                return;
+            }
+
+            SaveJournal journal = deserialize(savePath, Files.readAllBytes(journalPath));
+            if (journal != null) {
+                System.out.println("Recovering interrupted save...");
+                journal.apply(storage);
+            }
+            else {
+                System.err.println("Discarding incomplete save journal.");
+            }
+            Files.deleteIfExists(journalPath);
+        }
+        catch (IOException e) {
+            throw new RuntimeException("Failed to recover save journal", e);
+        }
+    }
+
+    /**
+     * Write every entry to its destination, then force everything that was touched onto the disk.
+     *
+     * @param storage Storage to write chunks to.
+     * @throws IOException If a file could not be written.
+     */
+    private void apply(ChunkStorage storage) throws IOException {
+        for (Map.Entry<Vector2i, byte[]> chunk : chunks.entrySet()) {
+            storage.write(chunk.getKey(), ByteBuffer.wrap(chunk.getValue()));
+        }
+        storage.sync();
+
+        for (Map.Entry<String, byte[]> file : files.entrySet()) {
+            IOUtils.writeAtomic(savePath.toPath().resolve(file.getKey()), file.getValue(), true);
+        }
+    }
+
+    /**
+     * Convert this journal into its on-disk form.
+     *
+     * @return Journal contents.
+     * @throws IOException If the journal could not be written.
+     */
+    private byte[] serialize() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(chunks.size() + files.size());
+
+        for (Map.Entry<Vector2i, byte[]> chunk : chunks.entrySet()) {
+            out.writeByte(CHUNK_ENTRY);
+            out.writeInt(chunk.getKey().x);
+            out.writeInt(chunk.getKey().y);
+            out.writeInt(chunk.getValue().length);
+            out.write(chunk.getValue());
+        }
+        for (Map.Entry<String, byte[]> file : files.entrySet()) {
+            out.writeByte(FILE_ENTRY);
+            out.writeUTF(file.getKey());
+            out.writeInt(file.getValue().length);
+            out.write(file.getValue());
+        }
+
+        CRC32C crc = new CRC32C();
+        crc.update(bytes.toByteArray());
+        out.writeInt((int) crc.getValue());
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Read a journal from its on-disk form.
+     *
+     * @param savePath Save file the journal belongs to.
+     * @param data Journal contents.
+     * @return Journal, or null if it is incomplete or corrupt.
+     */
+    private static SaveJournal deserialize(File savePath, byte[] data) {
+        if (data.length < Integer.BYTES * 3) {
+            return null;
+        }
+
+        ByteBuffer in = ByteBuffer.wrap(data);
+        CRC32C crc = new CRC32C();
+        crc.update(data, 0, data.length - Integer.BYTES);
+        if (in.getInt() != MAGIC || (int) crc.getValue() != in.getInt(data.length - Integer.BYTES)) {
+            return null;
+        }
+
+        SaveJournal journal = new SaveJournal(savePath);
+        int entries = in.getInt();
+        for (int i = 0; i < entries; i++) {
+            byte type = in.get();
+            if (type == CHUNK_ENTRY) {
+                Vector2i chunkCoords = new Vector2i(in.getInt(), in.getInt());
+                byte[] contents = new byte[in.getInt()];
+                in.get(contents);
+                journal.chunks.put(chunkCoords, contents);
+            }
+            else {
+                byte[] name = new byte[in.getShort() & 0xFFFF];
+                in.get(name);
+                byte[] contents = new byte[in.getInt()];
+                in.get(contents);
+                journal.files.put(new String(name, StandardCharsets.UTF_8), contents);
+            }
+        }
+        return journal;
+    }
+
+    /**
+     * Get the location of the journal for a save file.
+     *
+     * @param savePath Save file.
+     * @return Journal path.
+     */
+    private static Path getJournalPath(File savePath) {
+        return savePath.toPath().resolve(JOURNAL_NAME);
+    }
+}
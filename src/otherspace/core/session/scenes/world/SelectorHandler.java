@@ -73,7 +73,7 @@ public class SelectorHandler extends EntityComponent<Player> {
         }
 
         // Draw selector if the chunk it is on exists.
-        if (Chunk.getChunk(new Vector2i((int) Math.floor(position.x / 16), (int) Math.floor(position.y / 16))) != null) {
+        if (Chunk.getChunkAt(position) != null) {
             ItemStack held = Player.getHeldItem();
             Item heldInfo = held.getItem();
             boolean isPlaceable;
@@ -95,7 +95,7 @@ public class SelectorHandler extends EntityComponent<Player> {
                         new Rectangled(EntityRegistry.getSprite(te.MY_ENTITY).getBoundingBox()).translate(position.x, position.y + 0.5) :
                         new Rectangled(position.x - 0.5, position.y - 0.5, position.x + 0.5, position.y + 0.5);
                 boolean noBlockingTile = Chunk.getTileAt(Player.inFloorMode() ? Chunk.FTM : Chunk.STM, position) < 0;
-                boolean noBlockingEntity = !CollisionUtils.checkEntityCollision(CollisionUtils.getNearbyEntities(position), buildArea, true);
+                boolean noBlockingEntity = !CollisionUtils.checkEntityCollision(buildArea, true, null);
 
                 GroundTile props = GroundTile.get(Chunk.getTileAt(Chunk.GTM, position));
                 boolean solidGround = props != null && props.SOLID_GROUND;
@@ -3,11 +3,17 @@ package otherspace.core.session.scenes.world;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
+import org.joml.Vector2d;
 import org.joml.Vector2i;
 import otherspace.core.engine.Layer;
 import otherspace.core.engine.utils.IOUtils;
 import otherspace.core.engine.utils.SaveUtils;
 import otherspace.core.engine.world.entities.Entity;
+import otherspace.core.engine.world.entities.EntityGrid;
+import otherspace.core.engine.world.generation.GenerationContext;
+import otherspace.core.engine.world.generation.WorldGenerator;
+import otherspace.core.engine.world.tiles.AutoTiler;
+import otherspace.core.registry.WorldGeneratorRegistry;
 import otherspace.core.session.Drawer;
 import otherspace.core.session.SettingsManager;
 import otherspace.core.session.SoundManager;
@@ -19,8 +25,10 @@ import otherspace.game.entities.Player;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -33,14 +41,23 @@ public class World {
 
     // World data
     private final LinkedList<Layer> layers;
-    private final HashMap<Vector2i, Chunk> chunkMap;
+    private final ChunkMap chunkMap;
+    private final ChunkLoader chunkLoader;
+    private final ChunkStorage chunkStorage;
+    private final WorldSaver worldSaver;
+    private final GeneratedChunkCache generatedChunkCache;
     private final Set<Entity> entities;
+    private final EntityGrid entityGrid;
 
     // World info
     private final File savePath;
     private int seed;
     private int defaultGM;
     private int mapType;
+    private GenerationContext generationContext;
+    private WorldGenerator worldGenerator;
+    private WorldPregenerator pregenerator;
+    private Thread pregeneratorThread;
 
     // Time
     private int day;
@@ -48,6 +65,7 @@ public class World {
     private String dayPhase;
     private long sec;
     private long playTime;
+    private long ticks;
     private byte tick;
 
     // Ambience
@@ -67,11 +85,17 @@ public class World {
         layers.add(new DebugLayer());
         layers.add(new UILayer());
 
-        chunkMap = new HashMap<>();
+        chunkMap = new ChunkMap();
+        chunkLoader = new ChunkLoader();
         entities = ConcurrentHashMap.newKeySet();
+        entityGrid = new EntityGrid();
 
         // Load world data
         this.savePath = savePath;
+        chunkStorage = new ChunkStorage(savePath);
+        worldSaver = new WorldSaver(savePath, chunkStorage);
+        generatedChunkCache = new GeneratedChunkCache();
+        SaveJournal.recover(savePath, chunkStorage);
         loadWorld();
 
         // Spawn player
@@ -82,6 +106,7 @@ public class World {
      * Update world and entities for this frame.
      */
     public void update() {
+        worldSaver.update();
         updateTime();
 
         // Update entities
@@ -91,6 +116,9 @@ public class World {
 
         // Update camera
         ((GameCamera) SceneManager.getCurrentScene().getCamera()).updateCamera();
+
+        // Autotile everything changed this frame.
+        AutoTiler.update();
     }
 
     /**
@@ -98,6 +126,7 @@ public class World {
      */
     private void updateTime() {
         // Time management.
+        ticks++;
         tick++;
         if (tick >= 60) {
             tick = 0;
@@ -114,7 +143,7 @@ public class World {
             };
             if (sec % autosaveTimer == 0) {
                 // Autosave
-                SaveUtils.saveGame(savePath);
+                SaveUtils.saveGame(savePath, true);
             }
         }
 
@@ -202,8 +231,11 @@ public class World {
 
     /**
      * SAVE the World!
+     * World state is captured immediately, but is written to disk by the world saver in the background.
+     *
+     * @return Number of chunks queued for writing, since chunks that have not changed are skipped.
      */
-    public static void saveWorld() {
+    public static int saveWorld() {
         // Save general world info.
         JsonObject worldInfo = new JsonObject();
         worldInfo.add("defaultGM", new JsonPrimitive(singleton.defaultGM));
@@ -211,15 +243,20 @@ public class World {
         worldInfo.add("seed", new JsonPrimitive(singleton.seed));
         worldInfo.add("time", new JsonPrimitive(singleton.sec));
         worldInfo.add("playTime", new JsonPrimitive(singleton.playTime));
-        IOUtils.saveJson(worldInfo, singleton.savePath.getPath() + "/worldInfo.json");
+        singleton.worldSaver.writeJson(worldInfo, "worldInfo.json");
 
         // Save player data
-        Player.savePlayerData();
-
-        // Save chunks
-        for (Chunk c : getChunkMap().values()) {
-            c.saveChunk();
+        singleton.worldSaver.writeJson(Player.getPlayerData(), "playerdata.json");
+
+        // Save chunks that have changed since they were last written.
+        int saved = 0;
+        for (Chunk c : getChunks().values()) {
+            if (c.isDirty()) {
+                singleton.worldSaver.writeChunk(c.snapshot());
+                saved++;
+            }
         }
+        return saved;
     }
 
     /**
@@ -241,9 +278,10 @@ public class World {
             this.sec = time == null ? 480 : time.getAsLong();
             this.playTime = playtime == null ? 0 : playtime.getAsLong();
         }
+        generationContext = new GenerationContext(seed, mapType, savePath);
+        worldGenerator = WorldGeneratorRegistry.create(generationContext);
 
         // Load chunk data
-        // TODO: Implement lazy loading, and a flag system to prevent useless wilderness chunks from being loaded.
         File worldData = new File(getSavePath(), "/world/");
         if (!worldData.exists()) {
             try {
@@ -254,13 +292,33 @@ public class World {
             }
         }
 
-        File[] chunkFiles = worldData.listFiles();
-        if (chunkFiles != null) {
-            for (File file : chunkFiles) {
-                String name = file.getName();
-                String[] coords = name.split("_");
-                Vector2i chunkCoords = new Vector2i(Integer.parseInt(coords[0]), Integer.parseInt(coords[1]));
-                Chunk.loadChunk(chunkCoords);
+        // Only load the area around the player, anything further out will be loaded on demand by the camera.
+        Vector2d spawn = new Vector2d();
+        File playerData = new File(getSavePath(), "/playerdata.json");
+        if (playerData.exists()) {
+            JsonElement position = IOUtils.loadJson(playerData.getPath()).get("position");
+            if (position != null) {
+                spawn = IOUtils.jsonToObject(position, Vector2d.class);
+            }
+        }
+
+        int cX = (int) Math.floor(spawn.x / 16);
+        int cY = (int) Math.floor(spawn.y / 16);
+        int radius = GameCamera.LOAD_RADIUS + GameCamera.getLoadMargin();
+        ArrayList<Vector2i> spawnChunks = new ArrayList<>();
+        for (int x = cX - radius; x <= cX + radius; x++) {
+            for (int y = cY - radius; y <= cY + radius; y++) {
+                Vector2i chunkCoords = new Vector2i(x, y);
+                if (Chunk.isWithinWorld(chunkCoords)) {
+                    spawnChunks.add(chunkCoords);
+                }
+            }
+        }
+
+        // Read and generate in parallel, then add the chunks (and spawn their entities) here on the game thread.
+        for (ChunkData data : ChunkLoader.prepareAll(spawnChunks)) {
+            if (Chunk.getChunk(data.chunkCoords()) == null) {
+                Chunk.integrateChunk(data);
             }
         }
     }
@@ -310,6 +368,15 @@ public class World {
         return singleton.playTime;
     }
 
+    /**
+     * Get the number of updates this world has gone through since it was opened.
+     *
+     * @return Elapsed world ticks this session.
+     */
+    public static long getTicks() {
+        return singleton.ticks;
+    }
+
     /**
      * Get the list of all entities currently loaded into the world.
      *
@@ -320,14 +387,69 @@ public class World {
     }
 
     /**
-     * Get the map of all currently loaded chunks.
+     * Get the spatial index of all entities currently loaded into the world.
+     *
+     * @return Entity grid.
+     */
+    public static EntityGrid getEntityGrid() {
+        return singleton.entityGrid;
+    }
+
+    /**
+     * Get all currently loaded chunks.
      *
-     * @return Hashmap matching chunk coordinates to loaded chunks.
+     * @return Map of loaded chunks, keyed by packed chunk coordinates.
      */
-    public static HashMap<Vector2i, Chunk> getChunkMap() {
+    public static ChunkMap getChunks() {
         return singleton.chunkMap;
     }
 
+    /**
+     * Get a read-only view of all currently loaded chunks, keyed by chunk coordinates.
+     * Prefer {@link #getChunks()}, which can look chunks up without allocating.
+     *
+     * @return Map matching chunk coordinates to loaded chunks.
+     */
+    public static Map<Vector2i, Chunk> getChunkMap() {
+        return singleton.chunkMap.asMap();
+    }
+
+    /**
+     * Get the loader responsible for reading and generating chunks in the background.
+     *
+     * @return World chunk loader.
+     */
+    public static ChunkLoader getChunkLoader() {
+        return singleton.chunkLoader;
+    }
+
+    /**
+     * Get the region file storage holding this world's chunks.
+     *
+     * @return World chunk storage.
+     */
+    public static ChunkStorage getChunkStorage() {
+        return singleton.chunkStorage;
+    }
+
+    /**
+     * Get the saver responsible for writing world data to disk in the background.
+     *
+     * @return World saver.
+     */
+    public static WorldSaver getWorldSaver() {
+        return singleton.worldSaver;
+    }
+
+    /**
+     * Get the cache of recently generated chunks that have not been modified.
+     *
+     * @return Generated chunk cache.
+     */
+    public static GeneratedChunkCache getGeneratedChunkCache() {
+        return singleton.generatedChunkCache;
+    }
+
     /**
      * Get the default gamemode.
      *
@@ -346,6 +468,66 @@ public class World {
         return singleton.mapType;
     }
 
+    /**
+     * Get everything needed to generate chunks for this world, so that generation does not need to touch the world itself.
+     *
+     * @return World generation context.
+     */
+    public static GenerationContext getGenerationContext() {
+        return singleton.generationContext;
+    }
+
+    /**
+     * Get the generator for this world's map type.
+     *
+     * @return World generator.
+     */
+    public static WorldGenerator getWorldGenerator() {
+        return singleton.worldGenerator;
+    }
+
+    /**
+     * Start generating and saving an area of chunks in the background.
+     *
+     * @param chunks Coordinates of chunks to pre-generate.
+     * @return Whether pre-generation was started, which it is not if another run is still going.
+     */
+    public static boolean startPregeneration(List<Vector2i> chunks) {
+        if (singleton.pregenerator != null && !singleton.pregenerator.isDone()) {
+            return false;
+        }
+
+        singleton.pregenerator = new WorldPregenerator(singleton.chunkStorage, singleton.worldGenerator, chunks, true, false);
+        singleton.pregeneratorThread = new Thread(singleton.pregenerator::run, "World Pregenerator");
+        singleton.pregeneratorThread.setDaemon(true);
+        singleton.pregeneratorThread.start();
+        return true;
+    }
+
+    /**
+     * Stop any running pre-generation, blocking until it has finished writing.
+     */
+    public static void stopPregeneration() {
+        if (singleton.pregenerator != null) {
+            singleton.pregenerator.cancel();
+            try {
+                singleton.pregeneratorThread.join();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Get the most recent pre-generation run.
+     *
+     * @return Pre-generator, or null if nothing has been pre-generated since the world was opened.
+     */
+    public static WorldPregenerator getPregenerator() {
+        return singleton.pregenerator;
+    }
+
     /**
      * Get the current world seed.
      *
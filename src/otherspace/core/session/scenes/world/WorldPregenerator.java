@@ -0,0 +1,171 @@
+package otherspace.core.session.scenes.world;
+
+import org.joml.Vector2i;
+import otherspace.core.engine.world.generation.WorldGenerator;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates and saves an area of chunks ahead of time, so that players exploring it later do not have to wait for terrain
+ * to be generated. Runs without an open world use every chunk loader thread, while runs inside one use a smaller pool of
+ * their own so the world keeps loading chunks around players.
+ * Chunks that have already been saved are skipped, so an interrupted run picks up where it left off when started again.
+ * This only needs chunk storage and a world generator, so it can run without a window or an open world.
+ */
+public class WorldPregenerator {
+    private static final int BATCH_SIZE = 256;
+    private static final long REPORT_INTERVAL = 1_000_000_000;
+
+    private final ChunkStorage storage;
+    private final WorldGenerator generator;
+    private final List<Vector2i> chunks;
+    private final boolean background;
+    private final boolean verbose;
+    private final AtomicInteger generated;
+    private final AtomicInteger skipped;
+    private volatile boolean cancelled;
+    private volatile boolean done;
+    private volatile long startTime;
+
+    public WorldPregenerator(ChunkStorage storage, WorldGenerator generator, List<Vector2i> chunks, boolean background, boolean verbose) {
+        this.storage = storage;
+        this.generator = generator;
+        this.chunks = chunks;
+        this.background = background;
+        this.verbose = verbose;
+        generated = new AtomicInteger();
+        skipped = new AtomicInteger();
+    }
+
+    /**
+     * Generate every chunk in the area, blocking until finished or cancelled.
+     * If this run is verbose, progress is printed about once a second.
+     */
+    public void run() {
+        startTime = System.nanoTime();
+        long lastReport = startTime;
+        report("Pre-generating " + chunks.size() + " chunks...");
+
+        try {
+            for (int start = 0; start < chunks.size() && !cancelled; start += BATCH_SIZE) {
+                List<Vector2i> batch = chunks.subList(start, Math.min(start + BATCH_SIZE, chunks.size()));
+                ChunkLoader.forEach(batch, this::pregenerateChunk, background);
+                storage.sync();
+
+                long now = System.nanoTime();
+                if (now - lastReport >= REPORT_INTERVAL) {
+                    report(getProgress());
+                    lastReport = now;
+                }
+            }
+        }
+        finally {
+            done = true;
+        }
+
+        report((cancelled ? "Pre-generation stopped. " : "Pre-generation finished. ") + getProgress());
+    }
+
+    /**
+     * Print a progress message, if this run is verbose.
+     *
+     * @param message Message to print.
+     */
+    private void report(String message) {
+        if (verbose) {
+            System.out.println(message);
+        }
+    }
+
+    /**
+     * Generate and save a single chunk, unless it has already been saved.
+     *
+     * @param chunkCoords Coordinates of chunk.
+     */
+    private void pregenerateChunk(Vector2i chunkCoords) {
+        if (cancelled) {
+            return;
+        }
+
+        // The live world may save this chunk at any time, so only write if it still has not been saved by then.
+        if (!storage.contains(chunkCoords) && storage.writeIfAbsent(chunkCoords, ChunkCodec.encode(Chunk.generateChunk(chunkCoords, generator)))) {
+            generated.incrementAndGet();
+        }
+        else {
+            skipped.incrementAndGet();
+        }
+    }
+
+    /**
+     * Stop once the current batch of chunks is done. Everything generated so far stays saved.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Check whether this run has finished or been stopped.
+     *
+     * @return Whether this run is over.
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * Describe how far along this run is.
+     *
+     * @return Progress, including the generation rate.
+     */
+    public String getProgress() {
+        int gen = generated.get();
+        int processed = gen + skipped.get();
+        double seconds = Math.max(System.nanoTime() - startTime, 1) / 1e9;
+        return String.format("Pre-generated %d/%d chunks (%.1f%%, %d already saved), %.0f chunks/sec.",
+                processed, chunks.size(), 100.0 * processed / Math.max(chunks.size(), 1), skipped.get(), gen / seconds);
+    }
+
+    /**
+     * Get every chunk in a rectangle, in chunk coordinates.
+     *
+     * @param x1 X coordinate of first corner.
+     * @param y1 Y coordinate of first corner.
+     * @param x2 X coordinate of opposite corner.
+     * @param y2 Y coordinate of opposite corner.
+     * @return Chunks in area, ordered from the centre outwards.
+     */
+    public static List<Vector2i> getRectangle(int x1, int y1, int x2, int y2) {
+        ArrayList<Vector2i> area = new ArrayList<>();
+        for (int x = Math.min(x1, x2); x <= Math.max(x1, x2); x++) {
+            for (int y = Math.min(y1, y2); y <= Math.max(y1, y2); y++) {
+                Vector2i chunkCoords = new Vector2i(x, y);
+                if (Chunk.isWithinWorld(chunkCoords)) {
+                    area.add(chunkCoords);
+                }
+            }
+        }
+
+        // Work outwards, so that stopping early still leaves a solid area around the middle.
+        double cx = (x1 + x2) / 2.0;
+        double cy = (y1 + y2) / 2.0;
+        area.sort(Comparator.comparingDouble(c -> (c.x - cx) * (c.x - cx) + (c.y - cy) * (c.y - cy)));
+        return area;
+    }
+
+    /**
+     * Get every chunk within a radius of a centre chunk.
+     *
+     * @param cx X coordinate of centre chunk.
+     * @param cy Y coordinate of centre chunk.
+     * @param radius Radius, in chunks.
+     * @return Chunks in area, ordered from the centre outwards.
+     */
+    public static List<Vector2i> getCircle(int cx, int cy, int radius) {
+        List<Vector2i> area = getRectangle(cx - radius, cy - radius, cx + radius, cy + radius);
+        area.removeIf(c -> (long) (c.x - cx) * (c.x - cx) + (long) (c.y - cy) * (c.y - cy) > (long) radius * radius);
+        return area;
+    }
+}
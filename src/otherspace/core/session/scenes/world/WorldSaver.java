@@ -0,0 +1,141 @@
+package otherspace.core.session.scenes.world;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import org.joml.Vector2i;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Writes world snapshots to disk on a background thread, so that saving never stalls a game tick.
+ * Snapshots are taken on the game thread and written in the order they were queued.
+ * Everything queued between commits is written as a single batch through a {@link SaveJournal}, so a batch either lands
+ * completely or not at all.
+ */
+public class WorldSaver {
+    private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(r -> {
+        Thread writer = new Thread(r, "World Saver");
+        writer.setDaemon(true);
+        return writer;
+    });
+
+    private final File savePath;
+    private final ChunkStorage storage;
+    private final ConcurrentHashMap<Vector2i, ChunkData> unwritten;
+    private final AtomicReference<Throwable> failure;
+    private LinkedHashMap<Vector2i, ChunkData> pendingChunks;
+    private LinkedHashMap<String, JsonObject> pendingFiles;
+    private CompletableFuture<Void> lastWrite;
+
+    public WorldSaver(File savePath, ChunkStorage storage) {
+        this.savePath = savePath;
+        this.storage = storage;
+        unwritten = new ConcurrentHashMap<>();
+        pendingChunks = new LinkedHashMap<>();
+        pendingFiles = new LinkedHashMap<>();
+        failure = new AtomicReference<>();
+        lastWrite = CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Add a chunk snapshot to the next batch to be written.
+     *
+     * @param data Chunk snapshot.
+     */
+    public void writeChunk(ChunkData data) {
+        unwritten.put(data.chunkCoords(), data);
+        pendingChunks.put(data.chunkCoords(), data);
+    }
+
+    /**
+     * Add a JSON object to the next batch to be written.
+     *
+     * @param json JSON object to save.
+     * @param fileName File to save to, relative to the save directory.
+     */
+    public void writeJson(JsonObject json, String fileName) {
+        pendingFiles.put(fileName, json);
+    }
+
+    /**
+     * Queue everything added since the last commit to be written as one batch.
+     */
+    public void commit() {
+        if (pendingChunks.isEmpty() && pendingFiles.isEmpty()) {
+            return;
+        }
+
+        LinkedHashMap<Vector2i, ChunkData> chunks = pendingChunks;
+        LinkedHashMap<String, JsonObject> files = pendingFiles;
+        pendingChunks = new LinkedHashMap<>();
+        pendingFiles = new LinkedHashMap<>();
+
+        submit(() -> {
+            SaveJournal journal = new SaveJournal(savePath);
+            for (ChunkData data : chunks.values()) {
+                journal.addChunk(data.chunkCoords(), ChunkCodec.encode(data));
+            }
+            Gson gson = new Gson();
+            files.forEach((fileName, json) -> journal.addFile(fileName, gson.toJson(json).getBytes(StandardCharsets.UTF_8)));
+            journal.commit(storage);
+
+            for (ChunkData data : chunks.values()) {
+                unwritten.remove(data.chunkCoords(), data);
+            }
+        });
+    }
+
+    /**
+     * Queue a task to run on the save thread after everything queued before it.
+     *
+     * @param task Task to run.
+     */
+    public void submit(Runnable task) {
+        lastWrite = CompletableFuture.runAsync(() -> {
+            try {
+                task.run();
+            }
+            catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            }
+        }, WRITER);
+    }
+
+    /**
+     * Get a chunk snapshot that has been queued but not yet written, so that it is not read back from a stale file.
+     *
+     * @param chunkCoords Coordinates of chunk.
+     * @return Unwritten snapshot, or null if the save file for this chunk is up to date.
+     */
+    public ChunkData getUnwritten(Vector2i chunkCoords) {
+        return unwritten.get(chunkCoords);
+    }
+
+    /**
+     * Rethrow any error raised while writing in the background on the game thread, then commit anything queued during
+     * the last tick (e.g. chunks that were unloaded).
+     */
+    public void update() {
+        Throwable e = failure.getAndSet(null);
+        if (e != null) {
+            throw new RuntimeException("Failed to save world", e);
+        }
+        commit();
+    }
+
+    /**
+     * Commit anything pending, then block until everything queued so far has been written.
+     */
+    public void flush() {
+        commit();
+        lastWrite.join();
+        update();
+    }
+}
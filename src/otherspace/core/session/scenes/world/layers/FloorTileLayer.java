@@ -16,7 +16,7 @@ public class FloorTileLayer extends Layer {
      */
     @Override
     public void draw(Drawer d) {
-        for (Chunk c : World.getChunkMap().values()) {
+        for (Chunk c : World.getChunks().values()) {
             if (c.getState() == Chunk.CHUNK_STATE.NEARBY) {
                 c.getTileData(Chunk.FTM).draw(false, 0);
             }
@@ -1,7 +1,12 @@
 package otherspace.core.session.scenes.world.layers;
 
+import org.joml.Vector2d;
+import org.joml.Vector2i;
+import org.joml.primitives.Rectanglei;
+import otherspace.core.engine.Color;
 import otherspace.core.engine.Layer;
 import otherspace.core.session.Drawer;
+import otherspace.core.session.scenes.SceneManager;
 import otherspace.core.session.scenes.world.Chunk;
 import otherspace.core.session.scenes.world.World;
 
@@ -11,6 +16,8 @@ import static otherspace.core.session.scenes.world.Chunk.CHUNK_STATE;
  * Layer for rendering "ground" tiles, such as grass and water.
  */
 public class GroundTileLayer extends Layer {
+    private static final Color PLACEHOLDER_COLOR = new Color(0.1f, 0.1f, 0.1f);
+
     /**
      * Draw ground tiles.
      *
@@ -18,10 +25,19 @@ public class GroundTileLayer extends Layer {
      */
     @Override
     public void draw(Drawer d) {
-        for (Chunk c : World.getChunkMap().values()) {
+        for (Chunk c : World.getChunks().values()) {
             if (c.getState() == CHUNK_STATE.NEARBY) {
                 c.getTileData(Chunk.GTM).draw(true, 1);
             }
         }
+
+        // Fill in chunks that are still loading.
+        Vector2d cameraPos = SceneManager.getCurrentScene().getCamera().getPosition();
+        d.setColor(PLACEHOLDER_COLOR);
+        for (Vector2i p : World.getChunkLoader().getPending()) {
+            Rectanglei rect = new Rectanglei(p.x * 512, p.y * 512, p.x * 512 + 512, p.y * 512 + 512);
+            rect.translate((int) (-cameraPos.x * 32), (int) (-cameraPos.y * 32));
+            d.drawRect(rect);
+        }
     }
 }
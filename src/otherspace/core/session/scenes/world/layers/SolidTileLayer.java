@@ -16,7 +16,7 @@ public class SolidTileLayer extends Layer {
      */
     @Override
     public void draw(Drawer d) {
-        for (Chunk c : World.getChunkMap().values()) {
+        for (Chunk c : World.getChunks().values()) {
             if (c.getState() == Chunk.CHUNK_STATE.NEARBY) {
                 c.getTileData(Chunk.STM).draw(true, 0.5f);
             }
@@ -275,7 +275,7 @@ public class HUD extends Menu {
                 y += 20;
                 d.drawText(0, y, String.format("%s: %.1f / 16.7ms", SettingsManager.getText("hud_frame_time"), Session.getLastUpdateTime()));
                 y += 20;
-                d.drawText(0, y, String.format("%s: %d", SettingsManager.getText("hud_loaded_chunks"), World.getChunkMap().size()));
+                d.drawText(0, y, String.format("%s: %d", SettingsManager.getText("hud_loaded_chunks"), World.getChunks().size()));
                 y += 20;
                 d.drawText(0, y, String.format("%s: %s", SettingsManager.getText("hud_currentsave"), World.getSavePath().getName()));
                 y += 20;
@@ -339,6 +339,13 @@ public class HUD extends Menu {
      * @param interactable Interactable object.
      */
     public static void setCurrentInteraction(GUI<?> interactable) {
+        // Anything done through a GUI may change its entity's contents, so flag both ends of the switch.
+        if (singleton.currentInteraction != null) {
+            singleton.currentInteraction.getParent().markDirty();
+        }
+        if (interactable != null) {
+            interactable.getParent().markDirty();
+        }
         singleton.currentInteraction = interactable;
     }
 
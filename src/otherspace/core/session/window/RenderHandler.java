@@ -352,11 +352,12 @@ public class RenderHandler {
      * @param leftX Top left x coordinate in screen space.
      * @param topY Top left y coordinate in screen space.
      * @param tileset Tileset to use.
-     * @param tiledata Tiledata array.
+     * @param tiledata Tiledata array, indexed by x * stride + y.
+     * @param stride Height of the tiledata grid.
      * @param splat Whether to splat the textures.
      * @param weight If splatting, how heavily to splat the textures.
      */
-    public void drawTileMap(int leftX, int topY, Tile[] tileset, int[][] tiledata, boolean splat, float weight) {
+    public void drawTileMap(int leftX, int topY, Tile[] tileset, int[] tiledata, int stride, boolean splat, float weight) {
         boolean isGround = tileset == GroundTile.getTileset();
         Vector2f[][] baseCoords = new Vector2f[tileset.length][];
         for (int i = 0; i < baseCoords.length; i++) {
@@ -371,12 +372,12 @@ public class RenderHandler {
         }
         for (int i = start; i < end; i++) {
             for (int j = start; j < end; j++) {
-                int tile = getAbsoluteTile(tiledata[i][j]);
+                int tile = getAbsoluteTile(tiledata[i * stride + j]);
                 int x = leftX + i * 32;
                 int y1 = topY + j * 32;
 
                 if (tile >= 0) {
-                    int state = (byte) ((tiledata[i][j] & 0x7FC00000) >> 22);
+                    int state = (byte) ((tiledata[i * stride + j] & 0x7FC00000) >> 22);
                     boolean flip = (state & 0b010000000) > 0;
                     int scale = flip ? -1 : 1;
                     int dWidth = scale < 0 ? -32 : 32;
@@ -384,18 +385,18 @@ public class RenderHandler {
                     int x1 = x + (scale < 0 ? 32 : 0);
                     int x2 = x1 + dWidth;
                     int y2 = y1 + 32;
-                    drawTexture(x1, y1, x2, y2, adjustTileCoords(baseCoords[tile], tileset[tile], tiledata[i][j]), Color.WHITE, 1);
+                    drawTexture(x1, y1, x2, y2, adjustTileCoords(baseCoords[tile], tileset[tile], tiledata[i * stride + j]), Color.WHITE, 1);
 
                     // Should probably find a less hacky way of doing this.
                     if (splat && ((tile != GroundTiles.LAB_DARK && tile != GroundTiles.LAB_LIGHT) || !isGround)) {
-                        int topLeft = getAbsoluteTile(tiledata[i - 1][j - 1]);
-                        int top = getAbsoluteTile(tiledata[i][j - 1]);
-                        int topRight = getAbsoluteTile(tiledata[i + 1][j - 1]);
-                        int right = getAbsoluteTile(tiledata[i + 1][j]);
-                        int bottomRight = getAbsoluteTile(tiledata[i + 1][j + 1]);
-                        int bottom = getAbsoluteTile(tiledata[i][j + 1]);
-                        int bottomLeft = getAbsoluteTile(tiledata[i - 1][j + 1]);
-                        int left = getAbsoluteTile(tiledata[i - 1][j]);
+                        int topLeft = getAbsoluteTile(tiledata[(i - 1) * stride + j - 1]);
+                        int top = getAbsoluteTile(tiledata[i * stride + j - 1]);
+                        int topRight = getAbsoluteTile(tiledata[(i + 1) * stride + j - 1]);
+                        int right = getAbsoluteTile(tiledata[(i + 1) * stride + j]);
+                        int bottomRight = getAbsoluteTile(tiledata[(i + 1) * stride + j + 1]);
+                        int bottom = getAbsoluteTile(tiledata[i * stride + j + 1]);
+                        int bottomLeft = getAbsoluteTile(tiledata[(i - 1) * stride + j + 1]);
+                        int left = getAbsoluteTile(tiledata[(i - 1) * stride + j]);
 
                         Color splatCol = new Color(1, 1, 1, 1);
                         Color fadeOut = new Color(1, 1, 1, 1 - 1 / weight);
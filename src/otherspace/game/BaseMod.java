@@ -1,6 +1,7 @@
 package otherspace.game;
 
 import otherspace.game.entities.EntityRegistryHandler;
+import otherspace.game.generation.WorldGenerators;
 import otherspace.game.items.Items;
 import otherspace.game.recipes.Recipes;
 import otherspace.game.tiles.FloorTiles;
@@ -28,5 +29,8 @@ public class BaseMod {
 
         // Recipes
         Recipes.register();
+
+        // World generators
+        WorldGenerators.register();
     }
 }
@@ -11,7 +11,7 @@ import otherspace.core.engine.world.items.Inventory;
 import otherspace.core.engine.world.items.ItemStack;
 import otherspace.core.session.Drawer;
 
-import java.util.HashSet;
+import java.util.ArrayList;
 import java.util.Random;
 
 import static otherspace.core.session.Drawer.pos;
@@ -20,6 +20,9 @@ import static otherspace.core.session.Drawer.pos;
  * Entity representation of an item in the world.
  */
 public class DroppedItem extends MobileEntity {
+    // Reused when looking for items to combine with, so that dropping an item does not allocate a new collection.
+    private static final ArrayList<DroppedItem> nearbyBuffer = new ArrayList<>();
+
     public DroppedItem(Vector2d position, ItemStack myItem) {
         super(position);
         Inventory itemInv = new Inventory(1);
@@ -27,8 +30,8 @@ public class DroppedItem extends MobileEntity {
         addComponent(new Container<>(this, itemInv));
 
         // Look for nearby items of the same type and try to combine if one is found.
-        HashSet<DroppedItem> nearby = CollisionUtils.collisionRectList(CollisionUtils.getNearbyEntities(position), DroppedItem.class, new Rectangled(position.x - 1, position.y - 1, position.x + 1, position.y + 1));
-        for (DroppedItem d : nearby) {
+        CollisionUtils.collisionRectList(DroppedItem.class, new Rectangled(position.x - 1, position.y - 1, position.x + 1, position.y + 1), nearbyBuffer);
+        for (DroppedItem d : nearbyBuffer) {
             ItemStack otherItem = d.getMyItem();
             if (otherItem.equals(myItem)) {
                 int myCapacity = myItem.getItem().MAX_SIZE - myItem.stackSize;
@@ -38,9 +41,11 @@ public class DroppedItem extends MobileEntity {
                     int amount = Math.min(myCapacity, otherItem.stackSize);
                     myItem.stackSize += amount;
                     otherItem.stackSize -= amount;
+                    d.markDirty();
                 }
             }
         }
+        nearbyBuffer.clear();
     }
 
     public DroppedItem(Vector2d position) {
@@ -96,6 +96,11 @@ public class Firepit extends TileEntity {
             burnComponent.active = true;
         }
 
+        // Burning changes saved state every tick, so keep our chunk flagged for saving while lit.
+        if (burnComponent.active) {
+            markDirty();
+        }
+
         // Show fire if active.
         if (burnComponent.active) {
             spriteSpeed = 8;
@@ -125,8 +130,8 @@ public class Firepit extends TileEntity {
     }
 
     @Override
-    public void destroy() {
-        super.destroy();
+    public void unload() {
+        super.unload();
         if (soundSource != null) {
             SoundManager.stopSound(soundSource);
         }
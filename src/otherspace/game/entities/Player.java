@@ -33,6 +33,7 @@ import otherspace.core.registry.TileRegistry;
 import otherspace.core.session.Drawer;
 import otherspace.core.session.SettingsManager;
 import otherspace.core.session.scenes.world.Chunk;
+import otherspace.core.session.scenes.world.ChunkCursor;
 import otherspace.core.session.scenes.world.InputHandler;
 import otherspace.core.session.scenes.world.SelectorHandler;
 import otherspace.core.session.scenes.world.World;
@@ -219,7 +220,7 @@ public class Player extends LivingEntity {
             Sprite sprite = getSprite();
 
             // Handle water
-            int tile = Chunk.getTileAt(Chunk.GTM, position);
+            int tile = chunkCursor.getTileAt(Chunk.GTM, position.x, position.y);
             if (tile == GroundTiles.SHALLOW_WATER) {
                 Color bottom = new Color(0.8f * playerColor.r(), 0.8f * playerColor.g(), 1 * playerColor.b(), 0.8f);
                 sprite.drawPart((int) (position.x * 32), (int) (position.y * 32), playerColor, playerColor, bottom, bottom, 1, 1, spriteFrame, new Rectanglei(0, 0, sprite.getWidth(), sprite.getHeight()));
@@ -380,7 +381,7 @@ public class Player extends LivingEntity {
                     new Rectangled(EntityRegistry.getSprite(te.MY_ENTITY).getBoundingBox()).translate(selPos.x, selPos.y + 0.5) :
                     new Rectangled(selPos.x - 0.5, selPos.y - 0.5, selPos.x + 0.5, selPos.y + 0.5);
             boolean noBlockingTile = Chunk.getTileAt(inFloorMode() ? Chunk.FTM : Chunk.STM, sel.getPosition()) < 0;
-            boolean noBlockingEntity = !CollisionUtils.checkEntityCollision(CollisionUtils.getNearbyEntities(selPos), buildArea, true);
+            boolean noBlockingEntity = !CollisionUtils.checkEntityCollision(buildArea, true, null);
 
             GroundTile props = GroundTile.get(Chunk.getTileAt(Chunk.GTM, selPos));
             boolean solidGround = props != null && props.SOLID_GROUND;
@@ -554,6 +555,7 @@ public class Player extends LivingEntity {
         Vector2d selPos = Player.getSelector().getPosition();
         double cx = evenRadius ? selPos.x - 0.5 : selPos.x;
         double cy = evenRadius ? selPos.y - 0.5 : selPos.y;
+        ChunkCursor cursor = new ChunkCursor();
 
         for (int i = 0; i < size; i++) {
             double xOffset = selPos.x - Math.floor(radius) + i;
@@ -561,9 +563,9 @@ public class Player extends LivingEntity {
                 double yOffset = selPos.y - Math.floor(radius) + j;
                 double distance = new Vector2d(cx, cy).distance(xOffset, yOffset);
                 if (distance <= radius && CollisionUtils.collisionPoint(TileEntity.class, new Vector2d(xOffset, yOffset)) == null) {
-                    int curTile = Chunk.getTileAt(tileSet, new Vector2d(xOffset, yOffset));
+                    int curTile = cursor.getTileAt(tileSet, xOffset, yOffset);
                     if (curTile != tile) {
-                        Chunk.setTileAt(tileSet, new Vector2d(xOffset, yOffset), tile, true);
+                        cursor.setTileAt(tileSet, xOffset, yOffset, tile, true);
                     }
                 }
             }
@@ -571,14 +573,16 @@ public class Player extends LivingEntity {
     }
 
     /**
-     * Save the player's data. Unlike most save data, this will not be compressed to allow for easy modification.
+     * Serialize the player's data. Unlike most save data, this will not be compressed to allow for easy modification.
+     *
+     * @return Player data to be written to playerdata.json.
      */
-    public static void savePlayerData() {
+    public static JsonObject getPlayerData() {
         // Save player information.
         Player player = Player.getOwnPlayer();
         JsonObject playerInfo = player.serialize();
         playerInfo.add("gamemode", new JsonPrimitive(player.gamemode));
         playerInfo.add("hotbarSlots", Hotbar.serialize());
-        IOUtils.saveJson(playerInfo, World.getSavePath() + "/playerdata.json");
+        return playerInfo;
     }
 }
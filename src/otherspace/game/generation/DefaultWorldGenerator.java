@@ -0,0 +1,142 @@
+package otherspace.game.generation;
+
+import org.joml.Vector2d;
+import org.joml.Vector2i;
+import otherspace.core.engine.world.generation.GenerationBuffer;
+import otherspace.core.engine.world.generation.GenerationContext;
+import otherspace.core.engine.world.generation.NoiseGenerator;
+import otherspace.core.engine.world.generation.WorldGenerator;
+import otherspace.core.registry.TileRegistry;
+import otherspace.game.entities.LooseBranch;
+import otherspace.game.entities.OakTree;
+import otherspace.game.entities.RockPile;
+import otherspace.game.tiles.GroundTiles;
+import otherspace.game.tiles.WallTiles;
+
+import static otherspace.core.engine.world.generation.GenerationBuffer.CHUNK_TILES;
+
+/**
+ * Default terrain: perlin noise elevation running from deep water up to stone, with resources and trees scattered on top.
+ */
+public class DefaultWorldGenerator implements WorldGenerator {
+    // Rock types, in the order they are picked by the rock noise.
+    private static final int[] ROCK_GROUND = {GroundTiles.GRANITE, GroundTiles.BASALT, GroundTiles.LIMESTONE, GroundTiles.SANDSTONE, GroundTiles.MARBLE, GroundTiles.SLATE};
+    private static final int[] ROCK_WALLS = {WallTiles.GRANITE, WallTiles.BASALT, WallTiles.LIMESTONE, WallTiles.SANDSTONE, WallTiles.MARBLE, WallTiles.SLATE};
+
+    private final NoiseGenerator elevation;
+    private final NoiseGenerator rocks;
+    private final NoiseGenerator resources;
+    private final NoiseGenerator foliage;
+
+    public DefaultWorldGenerator(GenerationContext context) {
+        elevation = context.noise(1 / 4f, 2, 8, 0.2f); // Base and roughness
+        rocks = context.noise(1 / 2f);
+        resources = context.noise(50);
+        foliage = context.noise(1, 2, 25, 1);
+    }
+
+    @Override
+    public void generateHeight(GenerationBuffer buffer) {
+        for (int c = 0; c < buffer.getChunkCount(); c++) {
+            float[] nxs = buffer.getNoiseXs(c);
+            float[] nys = buffer.getNoiseYs(c);
+            elevation.fill(buffer.height, c * CHUNK_TILES, nxs, nys);
+
+            // Level out spawn to ensure players don't appear in a wall.
+            for (int x = 0; x < 16; x++) {
+                for (int y = 0; y < 16; y++) {
+                    int i = c * CHUNK_TILES + x * 16 + y;
+                    float dist = (float) Math.sqrt(Math.pow(nxs[x], 2) + Math.pow(nys[y], 2));
+                    float diff = buffer.height[i] - 0.5f;
+                    float adj = diff / (dist + 1);
+                    buffer.height[i] -= adj;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void generateBiomes(GenerationBuffer buffer) {
+        for (int c = 0; c < buffer.getChunkCount(); c++) {
+            float[] nxs = buffer.getNoiseXs(c);
+            float[] nys = buffer.getNoiseYs(c);
+            for (int x = 0; x < 16; x++) {
+                for (int y = 0; y < 16; y++) {
+                    // Only stone needs a rock type.
+                    int i = c * CHUNK_TILES + x * 16 + y;
+                    if (buffer.height[i] >= 0.65f) {
+                        int rockVal = (int) (rocks.sample(nxs[x], nys[y]) * 6);
+                        buffer.biome[i] = rockVal >= 0 && rockVal < ROCK_GROUND.length - 1 ? rockVal : ROCK_GROUND.length - 1;
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void generateSurface(GenerationBuffer buffer) {
+        for (int i = 0; i < buffer.height.length; i++) {
+            float elev = buffer.height[i];
+            if (elev < 0.3f) { // Deep Water
+                buffer.ground[i] = GroundTiles.DEEP_WATER;
+            }
+            else if (elev < 0.35f) { // Shallow Water
+                buffer.ground[i] = GroundTiles.SHALLOW_WATER;
+            }
+            else if (elev < 0.4f) { // Sand
+                buffer.ground[i] = GroundTiles.SAND;
+            }
+            else if (elev < 0.6f) { // Grass
+                buffer.ground[i] = GroundTiles.GRASS;
+            }
+            else if (elev < 0.65f) { // Dirt
+                buffer.ground[i] = GroundTiles.DIRT;
+                buffer.wall[i] = WallTiles.DIRT;
+            }
+            else { // Stone
+                buffer.ground[i] = ROCK_GROUND[buffer.biome[i]];
+                buffer.wall[i] = ROCK_WALLS[buffer.biome[i]];
+            }
+        }
+    }
+
+    @Override
+    public void generateResources(GenerationBuffer buffer) {
+        for (int c = 0; c < buffer.getChunkCount(); c++) {
+            Vector2i chunkCoords = buffer.getChunk(c);
+            float[] nxs = buffer.getNoiseXs(c);
+            float[] nys = buffer.getNoiseYs(c);
+            for (int x = 0; x < 16; x++) {
+                for (int y = 0; y < 16; y++) {
+                    int i = c * CHUNK_TILES + x * 16 + y;
+                    int gt = buffer.ground[i];
+                    if ((gt == GroundTiles.GRASS || gt == GroundTiles.SAND) && resources.sample(nxs[x], nys[y]) > 0.83f) {
+                        Vector2d spawnPos = new Vector2d(chunkCoords.x * 16 + x + 0.5f, chunkCoords.y * 16 + y + 1);
+                        buffer.spawn(c, x % 2 == y % 2 ? LooseBranch.class : RockPile.class, spawnPos);
+                        buffer.occupied[i] = true;
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void generateFoliage(GenerationBuffer buffer) {
+        for (int c = 0; c < buffer.getChunkCount(); c++) {
+            Vector2i chunkCoords = buffer.getChunk(c);
+            float[] nxs = buffer.getNoiseXs(c);
+            float[] nys = buffer.getNoiseYs(c);
+            for (int x = 0; x < 16; x++) {
+                for (int y = 0; y < 16; y++) {
+                    int i = c * CHUNK_TILES + x * 16 + y;
+                    boolean clear = buffer.ground[i] == GroundTiles.GRASS && buffer.wall[i] == TileRegistry.EMPTY && !buffer.occupied[i];
+                    if (clear && foliage.sample(nxs[x], nys[y]) > 0.76f) {
+                        Vector2d spawnPos = new Vector2d(chunkCoords.x * 16 + x + 0.5f, chunkCoords.y * 16 + y + 1);
+                        buffer.spawn(c, OakTree.class, spawnPos);
+                        buffer.occupied[i] = true;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package otherspace.game.generation;
+
+import otherspace.core.engine.world.generation.GenerationBuffer;
+import otherspace.core.engine.world.generation.GenerationContext;
+import otherspace.core.engine.world.generation.WorldGenerator;
+import otherspace.game.tiles.GroundTiles;
+
+/**
+ * Flat, empty world covered in a checkerboard of lab tiles, for testing.
+ */
+public class LabWorldGenerator implements WorldGenerator {
+    public LabWorldGenerator(GenerationContext context) {}
+
+    @Override
+    public void generateSurface(GenerationBuffer buffer) {
+        for (int i = 0; i < buffer.ground.length; i++) {
+            int x = i / 16 % 16;
+            int y = i % 16;
+            buffer.ground[i] = (x % 2 == y % 2) ? GroundTiles.LAB_DARK : GroundTiles.LAB_LIGHT;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package otherspace.game.generation;
+
+import otherspace.core.registry.WorldGeneratorRegistry;
+
+/**
+ * Register base game world generators.
+ */
+public class WorldGenerators {
+    private static final WorldGeneratorRegistry generatorRegister = new WorldGeneratorRegistry("base");
+
+    public static final int NORMAL = generatorRegister.register("normal", DefaultWorldGenerator::new);
+    public static final int LAB = generatorRegister.register("lab", LabWorldGenerator::new);
+
+    /**
+     * Invoke above static initializers.
+     */
+    public static void register() {}
+}
@@ -1,9 +1,9 @@
 package otherspace.game.tiles;
 
-import org.joml.Vector2d;
 import otherspace.core.engine.world.items.ItemDrop;
 import otherspace.core.engine.world.items.ItemStack;
 import otherspace.core.engine.world.tiles.AutoTileStrategy;
+import otherspace.core.engine.world.tiles.MaskAutoTileStrategy;
 import otherspace.core.engine.world.tiles.FloorTile;
 import otherspace.core.registry.TileRegistry;
 import otherspace.core.session.scenes.world.Chunk;
@@ -17,30 +17,7 @@ public class FloorTiles {
     private static final TileRegistry floorRegister = new TileRegistry("base");
 
     // Auto tile strategy.
-    public static final AutoTileStrategy defaultStrategy = new AutoTileStrategy() {
-        @Override
-        public void autoTile(int base, double x, double y, boolean recursive) {
-            // Get surrounding tiles.
-            int top = Chunk.getTileAt(Chunk.FTM, new Vector2d(x, y - 1));
-            int left = Chunk.getTileAt(Chunk.FTM, new Vector2d(x - 1, y));
-            int right = Chunk.getTileAt(Chunk.FTM, new Vector2d(x + 1, y));
-            int bottom = Chunk.getTileAt(Chunk.FTM, new Vector2d(x, y + 1));
-
-            // Set tile bitmask accordingly
-            int mask = (top > -1 ? 0 : 8) + (bottom > -1 ? 0 : 4) + (left > -1 ? 0 : 2) + (right > -1 ? 0 : 1);
-            int frame = draw(mask);
-            frame <<= 22;
-            frame &= 0x7FC00000;
-            Chunk.setTileAt(Chunk.FTM, new Vector2d(x, y), base | frame, false);
-
-            if (!recursive) {
-                autoTile(top, x, y - 1, true);
-                autoTile(left, x - 1, y, true);
-                autoTile(right, x + 1, y, true);
-                autoTile(bottom, x, y + 1, true);
-            }
-        }
-
+    public static final AutoTileStrategy defaultStrategy = new MaskAutoTileStrategy(Chunk.FTM, false) {
         @Override
         public int draw(int state) {
             return switch (state) {
@@ -1,9 +1,9 @@
 package otherspace.game.tiles;
 
-import org.joml.Vector2d;
 import otherspace.core.engine.world.items.ItemDrop;
 import otherspace.core.engine.world.items.ItemStack;
 import otherspace.core.engine.world.tiles.AutoTileStrategy;
+import otherspace.core.engine.world.tiles.MaskAutoTileStrategy;
 import otherspace.core.engine.world.tiles.WallTile;
 import otherspace.core.registry.TileRegistry;
 import otherspace.core.session.scenes.world.Chunk;
@@ -19,42 +19,7 @@ import java.util.Set;
 public class WallTiles {
     private static final TileRegistry wallRegister = new TileRegistry("base");
 
-    private static final AutoTileStrategy defaultSchema = new AutoTileStrategy() {
-        @Override
-        public void autoTile(int base, double x, double y, boolean recursive) {
-            // Get side tiles.
-            int top = Chunk.getTileAt(Chunk.STM, new Vector2d(x, y - 1));
-            int left = Chunk.getTileAt(Chunk.STM, new Vector2d(x - 1, y));
-            int right = Chunk.getTileAt(Chunk.STM, new Vector2d(x + 1, y));
-            int bottom = Chunk.getTileAt(Chunk.STM, new Vector2d(x, y + 1));
-
-            // Get corner tiles.
-            int topLeft = Chunk.getTileAt(Chunk.STM, new Vector2d(x - 1, y - 1));
-            int topRight = Chunk.getTileAt(Chunk.STM, new Vector2d(x + 1, y - 1));
-            int bottomLeft = Chunk.getTileAt(Chunk.STM, new Vector2d(x - 1, y + 1));
-            int bottomRight = Chunk.getTileAt(Chunk.STM, new Vector2d(x + 1, y + 1));
-
-            if (base >= 0) {
-                int sideMask = (top > -1 ? 0 : 8) + (bottom > -1 ? 0 : 4) + (left > -1 ? 0 : 2) + (right > -1 ? 0 : 1);
-                int cornerMask = (topLeft > -1 ? 0 : 128) + (topRight > -1 ? 0 : 64) + (bottomLeft > -1 ? 0 : 32) + (bottomRight > -1 ? 0 : 16);
-                int frame = draw(sideMask + cornerMask);
-                frame <<= 22;
-                frame &= 0x7FC00000;
-                Chunk.setTileAt(Chunk.STM, new Vector2d(x, y), base | frame, false);
-            }
-
-            if (!recursive) {
-                autoTile(top, x, y - 1, true);
-                autoTile(left, x - 1, y, true);
-                autoTile(right, x + 1, y, true);
-                autoTile(bottom, x, y + 1, true);
-                autoTile(topLeft, x - 1, y - 1, true);
-                autoTile(topRight, x + 1, y - 1, true);
-                autoTile(bottomLeft, x - 1, y + 1, true);
-                autoTile(bottomRight, x + 1, y + 1, true);
-            }
-        }
-
+    private static final AutoTileStrategy defaultSchema = new MaskAutoTileStrategy(Chunk.STM, true) {
         @Override
         public int draw(int state) {
             int sideMask = state & 0xF;